@@ -15,3 +15,6 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# Glide instantiates modules listed in the manifest reflectively.
+-keep public class * implements com.bumptech.glide.module.GlideModule
@@ -0,0 +1,110 @@
+package com.ancho.tv;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+/**
+ * Measures card creation, binding and selection changes on the main thread. Selection changes
+ * have to be allocation free. Binding cannot be: every bind of a new image builds a Glide request
+ * and sets new text, so its numbers are only logged for comparison between builds.
+ */
+public class CardPresenterBenchmark extends InstrumentationTestCase {
+    private static final String TAG = "CardPresenterBenchmark";
+    private static final int ITERATIONS = 1000;
+
+    private CardPresenter mPresenter;
+    private FrameLayout mParent;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPresenter = new CardPresenter();
+        mParent = new FrameLayout(new ContextThemeWrapper(
+                getInstrumentation().getTargetContext(), R.style.Theme_Leanback));
+    }
+
+    public void testCreate() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.onCreateViewHolder(mParent);
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS / 10; i++) {
+                    mPresenter.onCreateViewHolder(mParent);
+                }
+                report("create", start, ITERATIONS / 10, -1);
+            }
+        });
+    }
+
+    public void testSelectionIsAllocationFree() {
+        final int[] allocations = new int[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                CardPresenter.CardViewHolder holder =
+                        (CardPresenter.CardViewHolder) mPresenter.onCreateViewHolder(mParent);
+                CardPresenter.CardView cardView = holder.mCardView;
+                cardView.updateBackgroundColor(true);
+                cardView.updateBackgroundColor(false);
+
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    cardView.updateBackgroundColor(i % 2 == 0);
+                }
+                allocations[0] = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+                report("select", start, ITERATIONS, allocations[0]);
+            }
+        });
+        assertEquals(0, allocations[0]);
+    }
+
+    public void testBind() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // Two movies with different images, so every bind loads an image instead of
+                // keeping the one already shown.
+                Movie[] movies = {
+                        movie("First", "drawable://" + R.drawable.movie),
+                        movie("Second", "drawable://" + R.drawable.bm_global_bg)};
+                CardPresenter.CardViewHolder holder =
+                        (CardPresenter.CardViewHolder) mPresenter.onCreateViewHolder(mParent);
+                mPresenter.onBindViewHolder(holder, movies[0]);
+                mPresenter.onBindViewHolder(holder, movies[1]);
+
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    mPresenter.onBindViewHolder(holder, movies[i % 2]);
+                }
+                int allocations = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+                report("bind", start, ITERATIONS, allocations);
+                mPresenter.onUnbindViewHolder(holder);
+            }
+        });
+    }
+
+    private static Movie movie(String title, String cardImageUrl) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setStudio("Studio");
+        movie.setCardImageUrl(cardImageUrl);
+        return movie;
+    }
+
+    private static void report(String name, long startNanos, int iterations, int allocations) {
+        long perOp = (SystemClock.elapsedRealtimeNanos() - startNanos) / iterations;
+        Log.i(TAG, name + ": " + perOp + " ns/op"
+                + (allocations >= 0 ? ", " + allocations + " allocations" : ""));
+    }
+}
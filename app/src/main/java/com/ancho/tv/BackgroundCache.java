@@ -0,0 +1,167 @@
+package com.ancho.tv;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.request.animation.GlideAnimation;
+import com.bumptech.glide.request.target.SimpleTarget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Background images shared by the browse and details screens. Each background is decoded once
+ * per uri and screen size at a fraction of the screen resolution and blurred; BackgroundManager
+ * scales it back up, which the blur hides. Blurring can be turned off for the whole cache, so
+ * both screens always share one variant; sharp backgrounds are decoded at a larger fraction, so
+ * they do not look blocky. The cache keeps its own copy of every bitmap, so Glide never
+ * recycles one that is on screen. Main thread only.
+ */
+public final class BackgroundCache {
+    // Backgrounds are decoded at 1/DOWNSCALE of the screen size in each direction.
+    private static final int DOWNSCALE = 4;
+    private static final int SHARP_DOWNSCALE = 2;
+    private static final int BLUR_RADIUS = 3;
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+    private static BackgroundCache sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> mBitmaps = new LruCache<String, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    };
+    private final Map<String, Load> mLoads = new HashMap<String, Load>();
+    private boolean mBlur = true;
+
+    /*
+     * Receives a background on the main thread, or null if it could not be loaded.
+     */
+    public interface Callback {
+        void onBackgroundLoaded(String uri, Bitmap bitmap);
+    }
+
+    private BackgroundCache(Context context) {
+        mContext = context;
+    }
+
+    public static BackgroundCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BackgroundCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Chooses whether backgrounds are blurred. Backgrounds cached with the other setting are
+     * dropped, loads already running still deliver theirs.
+     */
+    public void setBlur(boolean blur) {
+        if (blur != mBlur) {
+            mBlur = blur;
+            mBitmaps.evictAll();
+        }
+    }
+
+    /**
+     * Delivers the background at uri for a screen of width by height pixels. Cached backgrounds
+     * are delivered right away; callers asking for a background that is already loading share
+     * that load.
+     */
+    public void load(String uri, int width, int height, Callback callback) {
+        boolean blur = mBlur;
+        String key = uri + "@" + width + "x" + height + (blur ? "" : "/sharp");
+        Bitmap bitmap = mBitmaps.get(key);
+        if (bitmap != null) {
+            callback.onBackgroundLoaded(uri, bitmap);
+            return;
+        }
+        Load load = mLoads.get(key);
+        if (load == null) {
+            int downscale = blur ? DOWNSCALE : SHARP_DOWNSCALE;
+            load = new Load(key, uri, width / downscale, height / downscale);
+            mLoads.put(key, load);
+            BitmapTransformation[] transformations = blur
+                    ? new BitmapTransformation[] {new CenterCrop(mContext),
+                            new BlurTransformation(mContext, BLUR_RADIUS)}
+                    : new BitmapTransformation[] {new CenterCrop(mContext)};
+            Glide.with(mContext)
+                    .load(uri)
+                    .asBitmap()
+                    .transform(transformations)
+                    .diskCacheStrategy(DiskCacheStrategy.RESULT)
+                    .into(load);
+        }
+        load.mCallbacks.add(callback);
+    }
+
+    /**
+     * Stops delivering to callback. A load nobody waits for any more is cancelled.
+     */
+    public void cancel(Callback callback) {
+        for (Load load : new ArrayList<Load>(mLoads.values())) {
+            if (load.mCallbacks.remove(callback) && load.mCallbacks.isEmpty()) {
+                mLoads.remove(load.mKey);
+                Glide.clear(load);
+            }
+        }
+    }
+
+    private void finish(final Load load, Bitmap bitmap) {
+        if (mLoads.get(load.mKey) != load) {
+            return;
+        }
+        mLoads.remove(load.mKey);
+        Bitmap copy = null;
+        if (bitmap != null) {
+            copy = bitmap.copy(bitmap.getConfig() != null
+                    ? bitmap.getConfig() : Bitmap.Config.ARGB_8888, false);
+            mBitmaps.put(load.mKey, copy);
+        }
+        for (Callback callback : load.mCallbacks) {
+            callback.onBackgroundLoaded(load.mUri, copy);
+        }
+        // Glide is still delivering the bitmap, hand it back once that is done.
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Glide.clear(load);
+            }
+        });
+    }
+
+    private final class Load extends SimpleTarget<Bitmap> {
+        final String mKey;
+        final String mUri;
+        final List<Callback> mCallbacks = new ArrayList<Callback>();
+
+        Load(String key, String uri, int width, int height) {
+            super(width, height);
+            mKey = key;
+            mUri = uri;
+        }
+
+        @Override
+        public void onResourceReady(Bitmap resource, GlideAnimation<? super Bitmap> animation) {
+            finish(this, resource);
+        }
+
+        @Override
+        public void onLoadFailed(Exception e, Drawable errorDrawable) {
+            finish(this, null);
+        }
+    }
+}
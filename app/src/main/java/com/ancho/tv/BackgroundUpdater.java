@@ -0,0 +1,84 @@
+package com.ancho.tv;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v17.leanback.app.BackgroundManager;
+import android.util.DisplayMetrics;
+
+/*
+ * Feeds BackgroundManager with the background of the selected item. Selection changes are
+ * debounced on one main thread Handler, so only an item focus rests on is loaded, and a load
+ * that is still running when a newer one starts is cancelled. Backgrounds come from the shared
+ * BackgroundCache, which decodes them on Glide's worker threads. Main thread only.
+ */
+public class BackgroundUpdater implements BackgroundCache.Callback {
+    private final BackgroundCache mBackgroundCache;
+    private final BackgroundManager mBackgroundManager;
+    private final Drawable mDefaultBackground;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mDelayMillis;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUpdateTask = new Runnable() {
+        @Override
+        public void run() {
+            load(mPendingUri);
+        }
+    };
+    private String mPendingUri;
+    private String mRequestedUri;
+
+    public BackgroundUpdater(Context context, BackgroundManager backgroundManager,
+                             DisplayMetrics metrics, Drawable defaultBackground,
+                             int delayMillis) {
+        mBackgroundCache = BackgroundCache.getInstance(context);
+        mBackgroundManager = backgroundManager;
+        mDefaultBackground = defaultBackground;
+        mWidth = metrics.widthPixels;
+        mHeight = metrics.heightPixels;
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * Shows the background at uri once the selection has stayed put for the debounce delay.
+     */
+    public void setBackgroundUri(String uri) {
+        mPendingUri = uri;
+        mHandler.removeCallbacks(mUpdateTask);
+        mHandler.postDelayed(mUpdateTask, mDelayMillis);
+    }
+
+    /**
+     * Drops a pending update and cancels the load in flight.
+     */
+    public void release() {
+        mHandler.removeCallbacks(mUpdateTask);
+        mBackgroundCache.cancel(this);
+        mRequestedUri = null;
+    }
+
+    @Override
+    public void onBackgroundLoaded(String uri, Bitmap bitmap) {
+        if (!uri.equals(mRequestedUri)) {
+            return;
+        }
+        if (bitmap != null) {
+            mBackgroundManager.setBitmap(bitmap);
+        } else {
+            mBackgroundManager.setDrawable(mDefaultBackground);
+        }
+    }
+
+    private void load(String uri) {
+        if (uri == null || uri.equals(mRequestedUri)) {
+            return;
+        }
+        // The user has moved on, nobody will see the background still in flight.
+        mBackgroundCache.cancel(this);
+        mRequestedUri = uri;
+        mBackgroundCache.load(uri, mWidth, mHeight, this);
+    }
+}
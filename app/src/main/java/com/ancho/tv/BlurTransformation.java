@@ -0,0 +1,84 @@
+package com.ancho.tv;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
+
+/*
+ * Softens a bitmap with two passes of a horizontal and vertical box blur, which comes close to
+ * a gaussian blur. Meant for small, down-scaled backgrounds.
+ */
+public class BlurTransformation extends BitmapTransformation {
+    private final int mRadius;
+
+    public BlurTransformation(Context context, int radius) {
+        super(context);
+        mRadius = radius;
+    }
+
+    @Override
+    protected Bitmap transform(BitmapPool pool, Bitmap toTransform, int outWidth, int outHeight) {
+        int width = toTransform.getWidth();
+        int height = toTransform.getHeight();
+        int[] pixels = new int[width * height];
+        int[] scratch = new int[width * height];
+        toTransform.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int pass = 0; pass < 2; pass++) {
+            boxBlur(pixels, scratch, width, height, mRadius, 1, width);
+            boxBlur(scratch, pixels, height, width, mRadius, width, 1);
+        }
+
+        Bitmap.Config config = toTransform.getConfig() != null
+                ? toTransform.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap result = pool.get(width, height, config);
+        if (result == null) {
+            result = Bitmap.createBitmap(width, height, config);
+        }
+        result.setPixels(pixels, 0, width, 0, 0, width, height);
+        return result;
+    }
+
+    /**
+     * Blurs every line of in along one axis into out with a sliding window. Pixels of a line are
+     * step apart, lines are stride apart; edges are clamped.
+     */
+    private static void boxBlur(int[] in, int[] out, int length, int lines, int radius,
+                                int step, int stride) {
+        int window = radius * 2 + 1;
+        for (int line = 0; line < lines; line++) {
+            int base = line * stride;
+            int a = 0;
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            for (int i = -radius; i <= radius; i++) {
+                int p = in[base + clamp(i, length) * step];
+                a += p >>> 24;
+                r += (p >> 16) & 0xff;
+                g += (p >> 8) & 0xff;
+                b += p & 0xff;
+            }
+            for (int i = 0; i < length; i++) {
+                out[base + i * step] = (a / window) << 24 | (r / window) << 16
+                        | (g / window) << 8 | (b / window);
+                int leaving = in[base + clamp(i - radius, length) * step];
+                int entering = in[base + clamp(i + radius + 1, length) * step];
+                a += (entering >>> 24) - (leaving >>> 24);
+                r += ((entering >> 16) & 0xff) - ((leaving >> 16) & 0xff);
+                g += ((entering >> 8) & 0xff) - ((leaving >> 8) & 0xff);
+                b += (entering & 0xff) - (leaving & 0xff);
+            }
+        }
+    }
+
+    private static int clamp(int i, int length) {
+        return i < 0 ? 0 : i >= length ? length - 1 : i;
+    }
+
+    @Override
+    public String getId() {
+        return "BlurTransformation(" + mRadius + ")";
+    }
+}
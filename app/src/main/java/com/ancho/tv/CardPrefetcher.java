@@ -0,0 +1,161 @@
+package com.ancho.tv;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v17.leanback.widget.ListRow;
+import android.support.v17.leanback.widget.ObjectAdapter;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.animation.GlideAnimation;
+import com.bumptech.glide.request.target.SimpleTarget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Loads card images ahead of D-pad focus. On every selection the next cards in the direction of
+ * travel and the cards around the same column in the neighbouring rows are requested at low
+ * priority. Finished images are released into Glide's memory cache right away, where the card
+ * request finds them. Reversing direction cancels everything still in flight. Main thread only.
+ */
+public class CardPrefetcher {
+    // Cards ahead of focus in the focused row.
+    private static final int ROW_AHEAD = 6;
+    // Cards around the focused column in the rows above and below.
+    private static final int ADJACENT_AHEAD = 4;
+    // Remembers recently prefetched urls so they are not requested again on every move.
+    private static final int RECENT_SIZE = 256;
+
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, PrefetchTarget> mInFlight = new HashMap<String, PrefetchTarget>();
+    private final Map<String, Boolean> mRecent =
+            new LinkedHashMap<String, Boolean>(RECENT_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > RECENT_SIZE;
+                }
+            };
+    private int mLastRow = -1;
+    private int mLastPosition = -1;
+    private int mRowDirection;
+    private int mColumnDirection;
+
+    public CardPrefetcher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Called when the card at position of the row at rowIndex in rows gains focus.
+     */
+    public void onItemSelected(ObjectAdapter rows, int rowIndex, int position) {
+        int rowDirection = mRowDirection;
+        int columnDirection = mColumnDirection;
+        if (rowIndex == mLastRow) {
+            columnDirection = Integer.signum(position - mLastPosition);
+        } else if (mLastRow >= 0) {
+            rowDirection = Integer.signum(rowIndex - mLastRow);
+        }
+        if (columnDirection == 0) {
+            columnDirection = 1;
+        }
+        if (rowDirection == 0) {
+            rowDirection = 1;
+        }
+        if (columnDirection != mColumnDirection || rowDirection != mRowDirection) {
+            cancel();
+        }
+        mRowDirection = rowDirection;
+        mColumnDirection = columnDirection;
+        mLastRow = rowIndex;
+        mLastPosition = position;
+
+        prefetchRow(rows, rowIndex, position + columnDirection, columnDirection, ROW_AHEAD);
+        // The row focus is heading to first, then the one it came from.
+        int start = position - ADJACENT_AHEAD / 2 * columnDirection;
+        prefetchRow(rows, rowIndex + rowDirection, start, columnDirection, ADJACENT_AHEAD);
+        prefetchRow(rows, rowIndex - rowDirection, start, columnDirection, ADJACENT_AHEAD);
+    }
+
+    /**
+     * Cancels all prefetches still in flight.
+     */
+    public void cancel() {
+        List<PrefetchTarget> targets = new ArrayList<PrefetchTarget>(mInFlight.values());
+        mInFlight.clear();
+        for (PrefetchTarget target : targets) {
+            ImageRequestStats.onCancelled(true);
+            Glide.clear(target);
+            // Still unfinished, so it has to be requested again next time.
+            mRecent.remove(target.mUrl);
+        }
+    }
+
+    private void prefetchRow(ObjectAdapter rows, int rowIndex, int start, int step, int count) {
+        if (rowIndex < 0 || rowIndex >= rows.size() || !(rows.get(rowIndex) instanceof ListRow)) {
+            return;
+        }
+        ObjectAdapter items = ((ListRow) rows.get(rowIndex)).getAdapter();
+        for (int i = 0, position = start; i < count; i++, position += step) {
+            if (position < 0 || position >= items.size()) {
+                continue;
+            }
+            Object item = items.get(position);
+            if (item instanceof Movie) {
+                prefetch(((Movie) item).getCardImageUrl());
+            }
+        }
+    }
+
+    private void prefetch(String url) {
+        if (url == null || mRecent.containsKey(url) || mInFlight.containsKey(url)) {
+            return;
+        }
+        mRecent.put(url, true);
+        PrefetchTarget target = new PrefetchTarget(url);
+        mInFlight.put(url, target);
+        CardPresenter.loadCardImage(mContext, url)
+                .priority(Priority.LOW)
+                .listener(ImageMetrics.track(ImageMetrics.SITE_CARD_PREFETCH,
+                        ImageRequestStats.track()))
+                .into(target);
+    }
+
+    private final class PrefetchTarget extends SimpleTarget<GlideDrawable> {
+        final String mUrl;
+
+        PrefetchTarget(String url) {
+            mUrl = url;
+        }
+
+        @Override
+        public void onResourceReady(GlideDrawable resource,
+                                    GlideAnimation<? super GlideDrawable> glideAnimation) {
+            // Clearing hands the image over to the memory cache. Glide is still delivering it,
+            // so do that on the next loop.
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mInFlight.get(mUrl) == PrefetchTarget.this) {
+                        mInFlight.remove(mUrl);
+                        Glide.clear(PrefetchTarget.this);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onLoadFailed(Exception e, Drawable errorDrawable) {
+            if (mInFlight.get(mUrl) == this) {
+                mInFlight.remove(mUrl);
+            }
+        }
+    }
+}
@@ -14,13 +14,21 @@
 
 package com.ancho.tv;
 
+import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.support.v17.leanback.widget.ImageCardView;
 import android.support.v17.leanback.widget.Presenter;
 import android.util.Log;
+import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 
+import com.bumptech.glide.DrawableRequestBuilder;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.Request;
+import com.bumptech.glide.request.target.Target;
 
 /*
  * A CardPresenter is used to generate Views and bind Objects to them on demand.
@@ -28,67 +36,187 @@ import com.bumptech.glide.Glide;
  */
 public class CardPresenter extends Presenter {
     private static final String TAG = "CardPresenter";
+    private static final boolean DEBUG = false;
 
+    // Card size in dp; images are decoded straight to the matching pixel size.
     private static final int CARD_WIDTH = 313;
     private static final int CARD_HEIGHT = 176;
-    private static int sSelectedBackgroundColor;
-    private static int sDefaultBackgroundColor;
+    // Card size in pixels, resolved once for every presenter and prefetch.
+    private static int sCardWidth;
+    private static int sCardHeight;
+    // Resolved once, when the first card is created.
+    private int mSelectedBackgroundColor;
+    private int mDefaultBackgroundColor;
     private Drawable mDefaultCardImage;
+    private int mCardWidth;
+    private int mCardHeight;
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent) {
-        Log.d(TAG, "onCreateViewHolder");
+        if (DEBUG) {
+            Log.d(TAG, "onCreateViewHolder");
+        }
 
-        sDefaultBackgroundColor = parent.getResources().getColor(R.color.default_background);
-        sSelectedBackgroundColor = parent.getResources().getColor(R.color.selected_background);
-        mDefaultCardImage = parent.getResources().getDrawable(R.drawable.movie);
+        Context context = parent.getContext();
+        if (mDefaultCardImage == null) {
+            mDefaultBackgroundColor = context.getResources().getColor(R.color.default_background);
+            mSelectedBackgroundColor =
+                    context.getResources().getColor(R.color.selected_background);
+            mDefaultCardImage = context.getResources().getDrawable(R.drawable.movie);
+            mCardWidth = getCardWidth(context);
+            mCardHeight = getCardHeight(context);
+        }
 
-        ImageCardView cardView = new ImageCardView(parent.getContext()) {
-            @Override
-            public void setSelected(boolean selected) {
-                updateCardBackgroundColor(this, selected);
-                super.setSelected(selected);
-            }
-        };
+        return new CardViewHolder(createCard(context));
+    }
 
+    private CardView createCard(Context context) {
+        CardView cardView = new CardView(context, mDefaultBackgroundColor,
+                mSelectedBackgroundColor);
         cardView.setFocusable(true);
         cardView.setFocusableInTouchMode(true);
-        updateCardBackgroundColor(cardView, false);
-        return new ViewHolder(cardView);
-    }
-
-    private static void updateCardBackgroundColor(ImageCardView view, boolean selected) {
-        int color = selected ? sSelectedBackgroundColor : sDefaultBackgroundColor;
-        // Both background colors should be set because the view's background is temporarily visible
-        // during animations.
-        view.setBackgroundColor(color);
-        view.findViewById(R.id.info_field).setBackgroundColor(color);
+        cardView.setMainImageDimensions(mCardWidth, mCardHeight);
+        return cardView;
     }
 
     @Override
     public void onBindViewHolder(Presenter.ViewHolder viewHolder, Object item) {
         Movie movie = (Movie) item;
-        ImageCardView cardView = (ImageCardView) viewHolder.view;
+        CardViewHolder holder = (CardViewHolder) viewHolder;
+        CardView cardView = holder.mCardView;
 
-        Log.d(TAG, "onBindViewHolder");
+        if (DEBUG) {
+            Log.d(TAG, "onBindViewHolder");
+        }
         if (movie.getCardImageUrl() != null) {
             cardView.setTitleText(movie.getTitle());
             cardView.setContentText(movie.getStudio());
-            cardView.setMainImageDimensions(CARD_WIDTH, CARD_HEIGHT);
-            Glide.with(viewHolder.view.getContext())
-                    .load(movie.getCardImageUrl())
-                    .centerCrop()
+            // Rebinding the same movie, e.g. after a refresh changed its text, keeps the image
+            // that is already shown or on its way.
+            if (movie.getCardImageUrl().equals(holder.mImageUrl) && holder.isImageRequested()) {
+                ImageRequestStats.onSkipped();
+                return;
+            }
+            holder.clearImage();
+            holder.mImageUrl = movie.getCardImageUrl();
+            holder.mImageTarget = loadCardImage(cardView.getContext(), holder.mImageUrl)
                     .error(mDefaultCardImage)
-                    .into(cardView.getMainImageView());
+                    .listener(ImageMetrics.track(ImageMetrics.SITE_CARD,
+                            ImageRequestStats.track()))
+                    .into(holder.mMainImageView);
+        }
+    }
+
+    static int getCardWidth(Context context) {
+        if (sCardWidth == 0) {
+            sCardWidth = Utils.convertDpToPixel(context, CARD_WIDTH);
+        }
+        return sCardWidth;
+    }
+
+    static int getCardHeight(Context context) {
+        if (sCardHeight == 0) {
+            sCardHeight = Utils.convertDpToPixel(context, CARD_HEIGHT);
         }
+        return sCardHeight;
+    }
+
+    /**
+     * Builds a card image request. Prefetches go through here too, so they hit the same cache
+     * entries as the cards.
+     */
+    static DrawableRequestBuilder<ImageMetrics.Url> loadCardImage(Context context, String url) {
+        // Downsample while decoding and keep the card sized result on disk, so a card never
+        // holds more than its own pixels.
+        return Glide.with(context)
+                .load(ImageMetrics.url(url))
+                .override(getCardWidth(context), getCardHeight(context))
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.RESULT);
     }
 
     @Override
     public void onUnbindViewHolder(Presenter.ViewHolder viewHolder) {
-        Log.d(TAG, "onUnbindViewHolder");
-        ImageCardView cardView = (ImageCardView) viewHolder.view;
+        if (DEBUG) {
+            Log.d(TAG, "onUnbindViewHolder");
+        }
+        CardViewHolder holder = (CardViewHolder) viewHolder;
+        // Stop loading an image nobody will see, and hand a finished one back to the memory cache.
+        holder.clearImage();
         // Remove references to images so that the garbage collector can free up memory
-        cardView.setBadgeImage(null);
-        cardView.setMainImage(null);
+        holder.mCardView.setBadgeImage(null);
+        holder.mCardView.setMainImage(null);
+    }
+
+    /*
+     * ImageCardView that recolors itself and its info area on selection, with both colors and
+     * the info area looked up once when the card is created.
+     */
+    static final class CardView extends ImageCardView {
+        private final View mInfoField;
+        private final int mDefaultBackgroundColor;
+        private final int mSelectedBackgroundColor;
+
+        CardView(Context context, int defaultBackgroundColor, int selectedBackgroundColor) {
+            super(context);
+            mInfoField = findViewById(R.id.info_field);
+            mDefaultBackgroundColor = defaultBackgroundColor;
+            mSelectedBackgroundColor = selectedBackgroundColor;
+            updateBackgroundColor(false);
+        }
+
+        @Override
+        public void setSelected(boolean selected) {
+            updateBackgroundColor(selected);
+            super.setSelected(selected);
+        }
+
+        void updateBackgroundColor(boolean selected) {
+            int color = selected ? mSelectedBackgroundColor : mDefaultBackgroundColor;
+            // Both background colors should be set because the view's background is temporarily
+            // visible during animations. The info area is still unset while the superclass
+            // constructor runs.
+            setBackgroundColor(color);
+            if (mInfoField != null) {
+                mInfoField.setBackgroundColor(color);
+            }
+        }
+    }
+
+    /*
+     * Holds the children of a card that are touched on every bind, and remembers its image
+     * request so it can be cancelled when the card is recycled.
+     * Identical urls requested by several cards at once share one load inside Glide's engine, as
+     * they all map to the same cache key.
+     */
+    static class CardViewHolder extends ViewHolder {
+        final CardView mCardView;
+        final ImageView mMainImageView;
+        String mImageUrl;
+        Target<GlideDrawable> mImageTarget;
+
+        CardViewHolder(CardView view) {
+            super(view);
+            mCardView = view;
+            mMainImageView = view.getMainImageView();
+        }
+
+        boolean isImageRequested() {
+            Request request = mImageTarget != null ? mImageTarget.getRequest() : null;
+            return request != null && (request.isRunning() || request.isComplete());
+        }
+
+        void clearImage() {
+            if (mImageTarget == null) {
+                return;
+            }
+            Request request = mImageTarget.getRequest();
+            if (request != null && request.isRunning()) {
+                ImageRequestStats.onCancelled(false);
+            }
+            Glide.clear(mImageTarget);
+            mImageTarget = null;
+            mImageUrl = null;
+        }
     }
 }
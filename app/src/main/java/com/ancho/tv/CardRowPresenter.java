@@ -0,0 +1,122 @@
+package com.ancho.tv;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v17.leanback.widget.HorizontalGridView;
+import android.support.v17.leanback.widget.ListRow;
+import android.support.v17.leanback.widget.ListRowPresenter;
+import android.support.v17.leanback.widget.Presenter;
+import android.support.v17.leanback.widget.PresenterSelector;
+import android.support.v17.leanback.widget.Row;
+import android.support.v17.leanback.widget.RowPresenter;
+import android.support.v17.leanback.widget.SinglePresenterSelector;
+import android.support.v7.widget.RecyclerView;
+
+/*
+ * ListRowPresenter for rows of cards. RowsFragment already shares one RecycledViewPool between
+ * all rows; this sizes the card slots of that pool to the visible grid and, once the first card
+ * row is bound, fills it with pre-inflated cards whenever the main thread is idle. Rows that
+ * scroll into view then take their cards from the pool instead of inflating them.
+ *
+ * Binding and unbinding of rows is reported to a RowBindingListener, which is how lazy rows learn
+ * that they are about to come on screen.
+ */
+public class CardRowPresenter extends ListRowPresenter {
+    private final Presenter mCardPresenter;
+    private final int mPoolSize;
+    private final int mWarmUpCount;
+    private WarmUp mWarmUp;
+    private RowBindingListener mRowBindingListener;
+
+    /*
+     * Told when the view of a row is bound, shortly before the row scrolls into view, and when
+     * it is unbound after the row has left the screen.
+     */
+    public interface RowBindingListener {
+        void onRowBound(Row row);
+
+        void onRowUnbound(Row row);
+    }
+
+    public CardRowPresenter(Presenter cardPresenter, int poolSize, int warmUpCount) {
+        mCardPresenter = cardPresenter;
+        mPoolSize = poolSize;
+        mWarmUpCount = Math.min(warmUpCount, poolSize);
+        setRecycledPoolSize(cardPresenter, poolSize);
+    }
+
+    /**
+     * Stops a warm-up that has not finished yet.
+     */
+    public void cancelWarmUp() {
+        if (mWarmUp != null) {
+            Looper.myQueue().removeIdleHandler(mWarmUp);
+            mWarmUp.mRemaining = 0;
+        }
+    }
+
+    public void setRowBindingListener(RowBindingListener listener) {
+        mRowBindingListener = listener;
+    }
+
+    @Override
+    protected void onBindRowViewHolder(RowPresenter.ViewHolder holder, Object item) {
+        super.onBindRowViewHolder(holder, item);
+        if (mRowBindingListener != null && item instanceof Row) {
+            mRowBindingListener.onRowBound((Row) item);
+        }
+        if (mWarmUp != null || !(item instanceof ListRow)) {
+            return;
+        }
+        // Lazy rows may still be empty, so check the presenter rather than the first card.
+        PresenterSelector selector = ((ListRow) item).getAdapter().getPresenterSelector();
+        if (!(selector instanceof SinglePresenterSelector)
+                || selector.getPresenter(null) != mCardPresenter) {
+            return;
+        }
+        // By now RowsFragment has switched the row to the shared pool.
+        mWarmUp = new WarmUp(((ListRowPresenter.ViewHolder) holder).getGridView());
+        Looper.myQueue().addIdleHandler(mWarmUp);
+    }
+
+    @Override
+    protected void onUnbindRowViewHolder(RowPresenter.ViewHolder holder) {
+        Row row = holder.getRow();
+        super.onUnbindRowViewHolder(holder);
+        if (mRowBindingListener != null && row != null) {
+            mRowBindingListener.onRowUnbound(row);
+        }
+    }
+
+    /*
+     * Inflates one card per idle pass, so the warm-up never holds up a frame. The view type of
+     * the cards is taken from the first card the row shows, which may come after the bind.
+     */
+    private final class WarmUp implements MessageQueue.IdleHandler {
+        private final HorizontalGridView mGridView;
+        private int mViewType = -1;
+        int mRemaining = mWarmUpCount;
+
+        WarmUp(HorizontalGridView gridView) {
+            mGridView = gridView;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            RecyclerView.Adapter<?> adapter = mGridView.getAdapter();
+            if (mRemaining <= 0 || adapter == null) {
+                return false;
+            }
+            if (mViewType < 0) {
+                if (adapter.getItemCount() == 0) {
+                    return true;
+                }
+                mViewType = adapter.getItemViewType(0);
+                mGridView.getRecycledViewPool().setMaxRecycledViews(mViewType, mPoolSize);
+            }
+            mGridView.getRecycledViewPool().putRecycledView(
+                    adapter.createViewHolder(mGridView, mViewType));
+            return --mRemaining > 0;
+        }
+    }
+}
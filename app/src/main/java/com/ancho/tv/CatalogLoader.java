@@ -0,0 +1,165 @@
+package com.ancho.tv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Pulls the catalog page by page from a CatalogSource on a background thread, compiles the
+ * RowModel of every page there too and hands both to the listener on the main thread. Only one
+ * page is in flight at a time. The same thread restores and saves the CatalogSnapshot and adds
+ * every page to the search index.
+ */
+public class CatalogLoader {
+    private static final String TAG = "CatalogLoader";
+
+    private final CatalogSource mSource;
+    private final int mPageSize;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private Listener mListener;
+    private int mOffset;
+    private boolean mLoading;
+    private boolean mHasMore = true;
+
+    /*
+     * Receives loaded pages on the main thread.
+     */
+    public interface Listener {
+        void onSnapshotRestored(List<Movie> movies, RowModel rows);
+
+        void onPageLoaded(List<Movie> page, RowModel rows, boolean hasMore);
+
+        void onLoadFailed(IOException e);
+    }
+
+    public CatalogLoader(CatalogSource source, int pageSize, Listener listener) {
+        mSource = source;
+        mPageSize = pageSize;
+        mListener = listener;
+    }
+
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    /**
+     * Requests the next page unless one is already loading or the catalog is exhausted.
+     * Must be called on the main thread.
+     */
+    public void loadNextPage() {
+        if (mLoading || !mHasMore || mListener == null) {
+            return;
+        }
+        mLoading = true;
+        final int offset = mOffset;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final List<Movie> page = mSource.loadPage(offset, mPageSize);
+                    final RowModel rows = RowModel.compile(page);
+                    MovieList.search.add(page);
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPageLoaded(page, rows);
+                        }
+                    });
+                } catch (final IOException e) {
+                    Log.e(TAG, "Unable to load catalog page at " + offset, e);
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoadFailed(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Restores the snapshot, if there is one, ahead of any page requested afterwards.
+     */
+    public void restoreSnapshot(final CatalogSnapshot snapshot) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!snapshot.exists()) {
+                    return;
+                }
+                try {
+                    final List<Movie> movies = snapshot.restore(MovieList.ids);
+                    final RowModel rows = RowModel.compile(movies);
+                    MovieList.search.add(movies);
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mListener != null) {
+                                mListener.onSnapshotRestored(movies, rows);
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.w(TAG, "Ignoring unreadable catalog snapshot", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Saves a copy of the catalog as the next snapshot.
+     */
+    public void saveSnapshot(final CatalogSnapshot snapshot, final MovieStore catalog) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot.save(catalog, MovieList.ids);
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to save catalog snapshot", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops delivering pages and closes the source once pending work is done.
+     */
+    public void release() {
+        mListener = null;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mSource.close();
+            }
+        });
+        mExecutor.shutdown();
+    }
+
+    private void onPageLoaded(List<Movie> page, RowModel rows) {
+        mLoading = false;
+        mOffset += page.size();
+        mHasMore = page.size() == mPageSize;
+        if (mListener != null) {
+            mListener.onPageLoaded(page, rows, mHasMore);
+        }
+    }
+
+    private void onLoadFailed(IOException e) {
+        mLoading = false;
+        if (mListener != null) {
+            mListener.onLoadFailed(e);
+        }
+    }
+}
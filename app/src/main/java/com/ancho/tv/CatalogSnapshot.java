@@ -0,0 +1,111 @@
+package com.ancho.tv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Compact binary copy of the last loaded catalog, so the browse screen can render before the
+ * backend answers. The file holds the next free id, the source key to id bindings of the saved
+ * titles and the movies encoded with MovieCodec. It is memory-mapped for reading and replaced atomically when saved. Both
+ * operations block and belong on a background thread.
+ */
+public final class CatalogSnapshot {
+    private static final int MAGIC = 0x43415453;
+    // Version 1 had no next free id and kept the bindings of removed titles.
+    private static final int VERSION_1 = 1;
+    private static final int VERSION = 2;
+
+    private final File mFile;
+
+    public CatalogSnapshot(File file) {
+        mFile = file;
+    }
+
+    public boolean exists() {
+        return mFile.isFile();
+    }
+
+    /**
+     * Reads the movies of the snapshot and restores their ids into the allocator.
+     */
+    public List<Movie> restore(MovieIdAllocator ids) throws IOException {
+        FileInputStream in = new FileInputStream(mFile);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Unknown snapshot format in " + mFile);
+            }
+            int version = buffer.getInt();
+            if (version == VERSION) {
+                ids.restoreNextId(buffer.getLong());
+            } else if (version != VERSION_1) {
+                throw new IOException("Unknown snapshot version " + version + " in " + mFile);
+            }
+            int keys = buffer.getInt();
+            for (int i = 0; i < keys; i++) {
+                String key = MovieCodec.readString(buffer);
+                ids.restore(key, buffer.getLong());
+            }
+            int size = buffer.getInt();
+            List<Movie> movies = new ArrayList<Movie>(size);
+            for (int i = 0; i < size; i++) {
+                movies.add(MovieCodec.read(buffer));
+            }
+            return movies;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot " + mFile, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the content of store, which must not change while it is saved.
+     * Only the bindings of titles in store are kept; the next free id keeps the ids of the others
+     * from being handed out again.
+     */
+    public void save(MovieStore store, MovieIdAllocator ids) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(ids.getNextId());
+
+            List<Map.Entry<String, Long>> keys = new ArrayList<Map.Entry<String, Long>>();
+            for (Map.Entry<String, Long> entry : ids.getIds().entrySet()) {
+                if (store.indexOfId(entry.getValue()) >= 0) {
+                    keys.add(entry);
+                }
+            }
+            out.writeInt(keys.size());
+            for (Map.Entry<String, Long> entry : keys) {
+                MovieCodec.writeString(out, entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+
+            out.writeInt(store.size());
+            for (int i = 0; i < store.size(); i++) {
+                MovieCodec.write(out, store.get(i), store.getDescriptionAt(i));
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("Unable to replace " + mFile);
+        }
+    }
+}
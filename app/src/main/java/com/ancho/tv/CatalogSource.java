@@ -0,0 +1,22 @@
+package com.ancho.tv;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * A backend the catalog is streamed from, one page at a time. Pages are always requested from a
+ * background thread, so implementations may block on disk or network.
+ */
+public interface CatalogSource {
+
+    /**
+     * Returns up to limit movies starting at offset. A page shorter than limit marks the end
+     * of the catalog.
+     */
+    List<Movie> loadPage(int offset, int limit) throws IOException;
+
+    /**
+     * Releases any file, connection or database held by the source.
+     */
+    void close();
+}
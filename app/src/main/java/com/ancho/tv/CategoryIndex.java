@@ -0,0 +1,115 @@
+package com.ancho.tv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Maps every category to the sorted ids of its movies. Lookups by category are O(1) and titles
+ * can be added or removed one at a time, so rows never need a scan of the whole catalog.
+ * Categories are kept in the order they were first seen.
+ */
+public final class CategoryIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, IdList> mCategories = new LinkedHashMap<String, IdList>();
+
+    public void add(String category, long id) {
+        IdList ids = mCategories.get(key(category));
+        if (ids == null) {
+            ids = new IdList();
+            mCategories.put(key(category), ids);
+        }
+        ids.add(id);
+    }
+
+    public boolean remove(String category, long id) {
+        IdList ids = mCategories.get(key(category));
+        if (ids == null || !ids.remove(id)) {
+            return false;
+        }
+        if (ids.mSize == 0) {
+            mCategories.remove(key(category));
+        }
+        return true;
+    }
+
+    public Set<String> categories() {
+        return Collections.unmodifiableSet(mCategories.keySet());
+    }
+
+    public int size(String category) {
+        IdList ids = mCategories.get(key(category));
+        return ids == null ? 0 : ids.mSize;
+    }
+
+    public long getId(String category, int position) {
+        IdList ids = mCategories.get(key(category));
+        if (ids == null || position < 0 || position >= ids.mSize) {
+            throw new IndexOutOfBoundsException(category + ": " + position);
+        }
+        return ids.mIds[position];
+    }
+
+    /**
+     * Returns a copy of the sorted ids of the category.
+     */
+    public long[] getIds(String category) {
+        IdList ids = mCategories.get(key(category));
+        return ids == null ? new long[0] : Arrays.copyOf(ids.mIds, ids.mSize);
+    }
+
+    /**
+     * Returns the position of id in the category, or a negative value if it is not there.
+     */
+    public int indexOf(String category, long id) {
+        IdList ids = mCategories.get(key(category));
+        return ids == null ? -1 : ids.indexOf(id);
+    }
+
+    public void clear() {
+        mCategories.clear();
+    }
+
+    private static String key(String category) {
+        return category == null ? "" : category;
+    }
+
+    private static final class IdList {
+        long[] mIds = new long[INITIAL_CAPACITY];
+        int mSize;
+
+        void add(long id) {
+            // Catalog pages mostly arrive in id order, which makes this an append.
+            int position = mSize == 0 || mIds[mSize - 1] < id ? mSize : indexOf(id);
+            if (position >= 0 && position < mSize) {
+                return;
+            }
+            if (position < 0) {
+                position = -position - 1;
+            }
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            System.arraycopy(mIds, position, mIds, position + 1, mSize - position);
+            mIds[position] = id;
+            mSize++;
+        }
+
+        boolean remove(long id) {
+            int position = indexOf(id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(mIds, position + 1, mIds, position, mSize - position - 1);
+            mSize--;
+            return true;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(mIds, 0, mSize, id);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ancho.tv;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Glide memory cache that counts hits, misses and evictions. Glide's engine looks every request
+ * up with remove(), which hands the resource over to the active resources on a hit.
+ */
+public class CountingMemoryCache extends LruResourceCache {
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+    private final AtomicInteger mEvictions = new AtomicInteger();
+
+    public CountingMemoryCache(int size) {
+        super(size);
+    }
+
+    @Override
+    public Resource<?> remove(Key key) {
+        Resource<?> resource = super.remove(key);
+        if (resource != null) {
+            mHits.incrementAndGet();
+        } else {
+            mMisses.incrementAndGet();
+        }
+        return resource;
+    }
+
+    @Override
+    protected void onItemEvicted(Key key, Resource<?> item) {
+        mEvictions.incrementAndGet();
+        super.onItemEvicted(key, item);
+    }
+
+    public int getHitCount() {
+        return mHits.get();
+    }
+
+    public int getMissCount() {
+        return mMisses.get();
+    }
+
+    public int getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    /**
+     * Returns the share of lookups served from memory, between 0 and 1.
+     */
+    public float getHitRate() {
+        int hits = mHits.get();
+        int lookups = hits + mMisses.get();
+        return lookups == 0 ? 0f : (float) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CountingMemoryCache{hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", size=" + getCurrentSize() / 1024
+                + "KB/" + getMaxSize() / 1024 + "KB}";
+    }
+}
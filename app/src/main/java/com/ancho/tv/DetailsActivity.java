@@ -22,6 +22,7 @@ import android.os.Bundle;
  */
 public class DetailsActivity extends Activity {
     public static final String SHARED_ELEMENT_NAME = "hero";
+    // Intent extra holding the id of the movie, resolved through MovieList.findById().
     public static final String MOVIE = "Movie";
 
     /**
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ancho.tv;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Probes video durations with MediaMetadataRetriever on a background thread. Results are
+ * remembered per video url in memory and in SharedPreferences, so a title is measured only once.
+ */
+public final class DurationProbe {
+    private static final String TAG = "DurationProbe";
+    private static final String PREFS_NAME = "video_durations";
+
+    private static DurationProbe sInstance;
+
+    private final SharedPreferences mPrefs;
+    private final Map<String, Integer> mDurations = new ConcurrentHashMap<String, Integer>();
+    // Only touched on the main thread.
+    private final Map<String, List<Callback>> mPending = new HashMap<String, List<Callback>>();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /*
+     * Receives a probed duration on the main thread.
+     */
+    public interface Callback {
+        void onDurationProbed(String videoUrl, int durationMillis);
+    }
+
+    private DurationProbe(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                mDurations.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+    }
+
+    public static synchronized DurationProbe getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DurationProbe(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the cached duration of the video, or -1 if it has not been probed yet.
+     */
+    public int getCachedDuration(String videoUrl) {
+        Integer duration = mDurations.get(videoUrl);
+        return duration != null ? duration : -1;
+    }
+
+    /**
+     * Delivers the duration of the video to the callback. Cached durations are delivered
+     * immediately; otherwise the video is probed in the background. Must be called on the
+     * main thread. The callback may be null to only warm the cache.
+     */
+    public void probe(final String videoUrl, Callback callback) {
+        if (videoUrl == null) {
+            return;
+        }
+        int cached = getCachedDuration(videoUrl);
+        if (cached >= 0) {
+            if (callback != null) {
+                callback.onDurationProbed(videoUrl, cached);
+            }
+            return;
+        }
+
+        List<Callback> callbacks = mPending.get(videoUrl);
+        if (callbacks != null) {
+            if (callback != null) {
+                callbacks.add(callback);
+            }
+            return;
+        }
+        callbacks = new ArrayList<Callback>();
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+        mPending.put(videoUrl, callbacks);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int duration = retrieveDuration(videoUrl);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(videoUrl, duration);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops delivering results to the callback. Probes already running still fill the cache.
+     */
+    public void cancel(Callback callback) {
+        for (List<Callback> callbacks : mPending.values()) {
+            callbacks.remove(callback);
+        }
+    }
+
+    private void deliver(String videoUrl, int duration) {
+        List<Callback> callbacks = mPending.remove(videoUrl);
+        if (duration < 0) {
+            return;
+        }
+        mDurations.put(videoUrl, duration);
+        mPrefs.edit().putInt(videoUrl, duration).apply();
+        if (callbacks != null) {
+            for (Callback callback : callbacks) {
+                callback.onDurationProbed(videoUrl, duration);
+            }
+        }
+    }
+
+    private static int retrieveDuration(String videoUrl) {
+        MediaMetadataRetriever mmr = new MediaMetadataRetriever();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+                mmr.setDataSource(videoUrl, new HashMap<String, String>());
+            } else {
+                mmr.setDataSource(videoUrl);
+            }
+            String time = mmr.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return time != null ? (int) Long.parseLong(time) : -1;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to probe duration of " + videoUrl, e);
+            return -1;
+        } finally {
+            mmr.release();
+        }
+    }
+}
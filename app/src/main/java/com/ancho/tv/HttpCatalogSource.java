@@ -0,0 +1,55 @@
+package com.ancho.tv;
+
+import android.net.Uri;
+import android.util.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+/*
+ * Requests catalog pages from an HTTP endpoint, e.g. a local stand-in server during development.
+ * The endpoint is called with offset and limit query parameters and answers with a JSON array
+ * in the format read by JsonCatalogSource.
+ */
+public class HttpCatalogSource implements CatalogSource {
+    private static final int TIMEOUT = 10000;
+
+    private final String mBaseUrl;
+
+    public HttpCatalogSource(String baseUrl) {
+        mBaseUrl = baseUrl;
+    }
+
+    @Override
+    public List<Movie> loadPage(int offset, int limit) throws IOException {
+        String url = Uri.parse(mBaseUrl).buildUpon()
+                .appendQueryParameter("offset", String.valueOf(offset))
+                .appendQueryParameter("limit", String.valueOf(limit))
+                .build().toString();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        JsonReader reader = null;
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response " + connection.getResponseCode()
+                        + " from " + url);
+            }
+            reader = new JsonReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+            reader.beginArray();
+            return JsonCatalogSource.readMovies(reader, mBaseUrl + "#", offset, limit);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,296 @@
+package com.ancho.tv;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.bumptech.glide.load.resource.bitmap.GlideBitmapDrawable;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Histograms of every image load, per call site: where the image came from (memory, disk cache,
+ * network or a local resource), how long the load took, how many source bytes were read, how long
+ * fetching them and decoding them took and how large the resulting bitmap is. A measured load
+ * uses a Url from url() as its model: MeasuredUrlLoader records the source fetch of the request
+ * on it, and the listener returned from track() picks it up from there, so requests for the same
+ * image never see each other's fetch. A request that joins a load already running for the same
+ * image has no fetch of its own and counts as a disk hit. Dumped by
+ * "adb shell dumpsys activity com.ancho.tv/.MainActivity" and to a file when browsing stops.
+ */
+public final class ImageMetrics {
+    private static final String TAG = "ImageMetrics";
+
+    public static final String SITE_CARD = "card";
+    public static final String SITE_CARD_PREFETCH = "card_prefetch";
+    public static final String SITE_DETAILS = "details";
+    public static final String SITE_PLAYBACK_CONTROLS = "playback_controls";
+    public static final String SITE_PLAYBACK_METADATA = "playback_metadata";
+
+    private static final String[] TIERS = {"memory", "disk", "network", "local"};
+    private static final int TIER_MEMORY = 0;
+    private static final int TIER_DISK = 1;
+    private static final int TIER_NETWORK = 2;
+    private static final int TIER_LOCAL = 3;
+
+    private static final Map<String, SiteMetrics> sSites = new LinkedHashMap<String, SiteMetrics>();
+    private static final ExecutorService sWriter = Executors.newSingleThreadExecutor();
+
+    private ImageMetrics() {
+    }
+
+    /**
+     * Returns the model of one measured load of url. Every request needs a new one.
+     */
+    public static Url url(String url) {
+        return new Url(url);
+    }
+
+    /**
+     * Returns a listener recording the load started now at site, passing every callback on to
+     * delegate if there is one.
+     */
+    public static <R> RequestListener<Url, R> track(String site,
+                                                    RequestListener<? super Url, R> delegate) {
+        return new MetricsListener<R>(site, delegate);
+    }
+
+    public static <R> RequestListener<Url, R> track(String site) {
+        return track(site, null);
+    }
+
+    public static synchronized void dump(PrintWriter writer, String prefix) {
+        writer.print(prefix);
+        writer.println("Image metrics:");
+        for (Map.Entry<String, SiteMetrics> entry : sSites.entrySet()) {
+            entry.getValue().dump(writer, prefix + "  ", entry.getKey());
+        }
+        writer.print(prefix);
+        writer.println("Card requests: " + ImageRequestStats.summary());
+        if (TvGlideModule.getMemoryCache() != null) {
+            writer.print(prefix);
+            writer.println("Memory cache: " + TvGlideModule.getMemoryCache());
+        }
+    }
+
+    /**
+     * Writes the current metrics to file, replacing it. The metrics are taken on the calling
+     * thread; the file is written on a background thread.
+     */
+    public static void writeTo(final File file) {
+        StringWriter text = new StringWriter();
+        dump(new PrintWriter(text), "");
+        final String report = text.toString();
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FileWriter writer = new FileWriter(file);
+                    try {
+                        writer.write(report);
+                    } finally {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to write image metrics to " + file, e);
+                }
+            }
+        });
+    }
+
+    private static synchronized void record(String site, int tier, long loadMillis, Fetch fetch,
+                                            long bitmapBytes) {
+        SiteMetrics metrics = sSites.get(site);
+        if (metrics == null) {
+            metrics = new SiteMetrics();
+            sSites.put(site, metrics);
+        }
+        metrics.mTiers[tier]++;
+        metrics.mLoadMillis.add(loadMillis);
+        if (fetch != null) {
+            metrics.mSourceBytes.add(fetch.mBytes);
+            metrics.mFetchMillis.add(fetch.mFetchMillis);
+            metrics.mDecodeMillis.add(fetch.mDecodeMillis);
+        }
+        if (bitmapBytes > 0) {
+            metrics.mBitmapBytes.add(bitmapBytes);
+        }
+    }
+
+    private static long bitmapBytes(Object resource) {
+        Bitmap bitmap = null;
+        if (resource instanceof Bitmap) {
+            bitmap = (Bitmap) resource;
+        } else if (resource instanceof GlideBitmapDrawable) {
+            bitmap = ((GlideBitmapDrawable) resource).getBitmap();
+        }
+        return bitmap != null ? (long) bitmap.getRowBytes() * bitmap.getHeight() : 0;
+    }
+
+    /*
+     * The model of a measured load. Its url is what Glide loads and caches by; the source fetch
+     * of the request is recorded on it from Glide's threads.
+     */
+    public static final class Url {
+        final String mUrl;
+        volatile Fetch mFetch;
+
+        Url(String url) {
+            mUrl = url;
+        }
+
+        public String getUrl() {
+            return mUrl;
+        }
+
+        void onFetched(boolean network, long bytes, long fetchMillis, long decodeMillis) {
+            mFetch = new Fetch(network, bytes, fetchMillis, decodeMillis);
+        }
+
+        @Override
+        public String toString() {
+            return mUrl;
+        }
+    }
+
+    static final class Fetch {
+        final boolean mNetwork;
+        final long mBytes;
+        // Opening the source and waiting for its bytes.
+        final long mFetchMillis;
+        // Decoding, without the time spent waiting for bytes.
+        final long mDecodeMillis;
+
+        Fetch(boolean network, long bytes, long fetchMillis, long decodeMillis) {
+            mNetwork = network;
+            mBytes = bytes;
+            mFetchMillis = fetchMillis;
+            mDecodeMillis = decodeMillis;
+        }
+    }
+
+    private static final class MetricsListener<R> implements RequestListener<Url, R> {
+        private final String mSite;
+        private final RequestListener<? super Url, R> mDelegate;
+        private final long mStartMillis = SystemClock.elapsedRealtime();
+
+        MetricsListener(String site, RequestListener<? super Url, R> delegate) {
+            mSite = site;
+            mDelegate = delegate;
+        }
+
+        @Override
+        public boolean onException(Exception e, Url model, Target<R> target,
+                                   boolean isFirstResource) {
+            return mDelegate != null && mDelegate.onException(e, model, target, isFirstResource);
+        }
+
+        @Override
+        public boolean onResourceReady(R resource, Url model, Target<R> target,
+                                       boolean isFromMemoryCache, boolean isFirstResource) {
+            Fetch fetch = model != null ? model.mFetch : null;
+            int tier;
+            if (isFromMemoryCache) {
+                tier = TIER_MEMORY;
+            } else if (fetch == null) {
+                // Glide only skips the source fetch when the disk cache has the image.
+                tier = TIER_DISK;
+            } else {
+                tier = fetch.mNetwork ? TIER_NETWORK : TIER_LOCAL;
+            }
+            record(mSite, tier, SystemClock.elapsedRealtime() - mStartMillis, fetch,
+                    bitmapBytes(resource));
+            return mDelegate != null && mDelegate.onResourceReady(resource, model, target,
+                    isFromMemoryCache, isFirstResource);
+        }
+    }
+
+    private static final class SiteMetrics {
+        final int[] mTiers = new int[TIERS.length];
+        final Histogram mLoadMillis = new Histogram();
+        final Histogram mFetchMillis = new Histogram();
+        final Histogram mDecodeMillis = new Histogram();
+        final Histogram mSourceBytes = new Histogram();
+        final Histogram mBitmapBytes = new Histogram();
+
+        void dump(PrintWriter writer, String prefix, String site) {
+            writer.print(prefix);
+            writer.print(site);
+            writer.print(':');
+            for (int i = 0; i < TIERS.length; i++) {
+                writer.print(' ');
+                writer.print(TIERS[i]);
+                writer.print('=');
+                writer.print(mTiers[i]);
+            }
+            writer.println();
+            String indent = prefix + "  ";
+            mLoadMillis.dump(writer, indent, "load ms");
+            mFetchMillis.dump(writer, indent, "fetch ms");
+            mDecodeMillis.dump(writer, indent, "decode ms");
+            mSourceBytes.dump(writer, indent, "source bytes");
+            mBitmapBytes.dump(writer, indent, "bitmap bytes");
+        }
+    }
+
+    /*
+     * Counts values in power of two buckets: bucket i holds values below 2^i.
+     */
+    static final class Histogram {
+        private final int[] mBuckets = new int[Long.SIZE];
+        private int mCount;
+        private long mSum;
+        private long mMax;
+
+        void add(long value) {
+            value = Math.max(0, value);
+            mBuckets[Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+            mCount++;
+            mSum += value;
+            mMax = Math.max(mMax, value);
+        }
+
+        /**
+         * Returns an upper bound of the given percentile, from the bucket it falls into.
+         */
+        long percentile(int percent) {
+            int rank = (int) Math.ceil(mCount * percent / 100.0);
+            int seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(mMax, i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return mMax;
+        }
+
+        void dump(PrintWriter writer, String prefix, String name) {
+            if (mCount == 0) {
+                return;
+            }
+            writer.print(prefix);
+            writer.println(name + ": count=" + mCount + " mean=" + mSum / mCount
+                    + " p50<=" + percentile(50) + " p90<=" + percentile(90)
+                    + " p99<=" + percentile(99) + " max=" + mMax);
+            StringBuilder buckets = new StringBuilder();
+            for (int i = 0; i < mBuckets.length; i++) {
+                if (mBuckets[i] > 0) {
+                    buckets.append(" <").append(1L << i).append(':').append(mBuckets[i]);
+                }
+            }
+            writer.print(prefix);
+            writer.println(" " + buckets);
+        }
+    }
+}
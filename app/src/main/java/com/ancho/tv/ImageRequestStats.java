@@ -0,0 +1,71 @@
+package com.ancho.tv;
+
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+/*
+ * Counts what happens to card image requests: how many were started, served from memory,
+ * finished, failed, cancelled before finishing or skipped because the card already showed the
+ * same image. Glide delivers everything on the main thread, which is the only one touching this.
+ */
+public final class ImageRequestStats {
+    private static int sStarted;
+    private static int sFromMemory;
+    private static int sCompleted;
+    private static int sFailed;
+    private static int sCancelled;
+    private static int sPrefetchCancelled;
+    private static int sSkipped;
+
+    private static final RequestListener<Object, GlideDrawable> LISTENER =
+            new RequestListener<Object, GlideDrawable>() {
+                @Override
+                public boolean onException(Exception e, Object model, Target<GlideDrawable> target,
+                                           boolean isFirstResource) {
+                    sFailed++;
+                    return false;
+                }
+
+                @Override
+                public boolean onResourceReady(GlideDrawable resource, Object model,
+                                               Target<GlideDrawable> target,
+                                               boolean isFromMemoryCache,
+                                               boolean isFirstResource) {
+                    sCompleted++;
+                    if (isFromMemoryCache) {
+                        sFromMemory++;
+                    }
+                    return false;
+                }
+            };
+
+    private ImageRequestStats() {
+    }
+
+    /**
+     * Returns a listener that counts a request as started and then tracks its outcome.
+     */
+    static RequestListener<Object, GlideDrawable> track() {
+        sStarted++;
+        return LISTENER;
+    }
+
+    static void onCancelled(boolean prefetch) {
+        if (prefetch) {
+            sPrefetchCancelled++;
+        } else {
+            sCancelled++;
+        }
+    }
+
+    static void onSkipped() {
+        sSkipped++;
+    }
+
+    public static String summary() {
+        return "started=" + sStarted + ", fromMemory=" + sFromMemory + ", completed="
+                + sCompleted + ", failed=" + sFailed + ", cancelled=" + sCancelled
+                + ", prefetchCancelled=" + sPrefetchCancelled + ", skipped=" + sSkipped;
+    }
+}
@@ -0,0 +1,112 @@
+package com.ancho.tv;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Streams the catalog from a JSON file holding one array of movie objects. The file is read
+ * sequentially, so paging forward never re-parses what has already been served.
+ */
+public class JsonCatalogSource implements CatalogSource {
+    private final File mFile;
+    private JsonReader mReader;
+    private int mPosition;
+
+    public JsonCatalogSource(File file) {
+        mFile = file;
+    }
+
+    @Override
+    public synchronized List<Movie> loadPage(int offset, int limit) throws IOException {
+        if (mReader == null || offset < mPosition) {
+            close();
+            mReader = new JsonReader(new InputStreamReader(new FileInputStream(mFile), "UTF-8"));
+            mReader.beginArray();
+            mPosition = 0;
+        }
+        while (mPosition < offset && mReader.hasNext()) {
+            mReader.skipValue();
+            mPosition++;
+        }
+        List<Movie> page = readMovies(mReader, mFile.getPath() + ":", offset, limit);
+        mPosition += page.size();
+        return page;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mReader != null) {
+            try {
+                mReader.close();
+            } catch (IOException e) {
+                // Nothing left to release.
+            }
+            mReader = null;
+        }
+    }
+
+    /**
+     * Reads up to limit movie objects from a reader positioned inside a JSON array, at offset
+     * in the catalog. Objects without an "id" are identified by keyPrefix and their position.
+     */
+    static List<Movie> readMovies(JsonReader reader, String keyPrefix, int offset, int limit)
+            throws IOException {
+        List<Movie> movies = new ArrayList<Movie>();
+        while (movies.size() < limit && reader.hasNext()) {
+            movies.add(readMovie(reader, keyPrefix, offset + movies.size()));
+        }
+        return movies;
+    }
+
+    private static Movie readMovie(JsonReader reader, String keyPrefix, int position)
+            throws IOException {
+        String key = null;
+        String category = null;
+        String title = null;
+        String description = null;
+        String studio = null;
+        String videoUrl = null;
+        String cardImageUrl = null;
+        String bgImageUrl = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if (name.equals("id")) {
+                key = reader.nextString();
+            } else if (name.equals("category")) {
+                category = reader.nextString();
+            } else if (name.equals("title")) {
+                title = reader.nextString();
+            } else if (name.equals("description")) {
+                description = reader.nextString();
+            } else if (name.equals("studio")) {
+                studio = reader.nextString();
+            } else if (name.equals("videoUrl")) {
+                videoUrl = reader.nextString();
+            } else if (name.equals("cardImageUrl")) {
+                cardImageUrl = reader.nextString();
+            } else if (name.equals("bgImageUrl")) {
+                bgImageUrl = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (key == null) {
+            key = String.valueOf(position);
+        }
+        return MovieList.buildMovieInfo(keyPrefix + key, category, title, description, studio,
+                videoUrl, cardImageUrl, bgImageUrl);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ancho.tv;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.text.TextUtils;
+
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GenericLoaderFactory;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.StreamModelLoader;
+
+import java.io.File;
+import java.io.InputStream;
+
+/*
+ * Loads image strings that point into the app itself without going near the network stack:
+ * "drawable://<id or name>" decodes the drawable resource and "asset://<path>" the asset, both
+ * through Glide's local uri fetchers and caches. Everything else goes to the uri loader just like
+ * Glide's own string loader. Registered by TvGlideModule.
+ */
+public class LocalStringLoader implements StreamModelLoader<String> {
+    private static final String DRAWABLE_SCHEME = "drawable";
+    private static final String ASSET_SCHEME = "asset";
+
+    private final Context mContext;
+    private final ModelLoader<Uri, InputStream> mUriLoader;
+
+    public LocalStringLoader(Context context, ModelLoader<Uri, InputStream> uriLoader) {
+        mContext = context;
+        mUriLoader = uriLoader;
+    }
+
+    @Override
+    public DataFetcher<InputStream> getResourceFetcher(String model, int width, int height) {
+        if (TextUtils.isEmpty(model)) {
+            return null;
+        }
+        Uri uri = toLocalUri(model);
+        if (uri == Uri.EMPTY) {
+            // Fails the request through its error drawable.
+            return null;
+        } else if (uri == null) {
+            uri = model.startsWith("/") ? Uri.fromFile(new File(model)) : Uri.parse(model);
+        }
+        return mUriLoader.getResourceFetcher(uri, width, height);
+    }
+
+    /**
+     * Maps the app's own schemes to uris Glide can open locally, or returns null for others.
+     * Returns Uri.EMPTY for a drawable that does not exist.
+     */
+    private Uri toLocalUri(String model) {
+        int separator = model.indexOf("://");
+        if (separator < 0) {
+            return null;
+        }
+        String scheme = model.substring(0, separator);
+        String path = model.substring(separator + 3);
+        if (DRAWABLE_SCHEME.equals(scheme)) {
+            int id = getDrawableId(path);
+            if (id == 0) {
+                return Uri.EMPTY;
+            }
+            return new Uri.Builder()
+                    .scheme(ContentResolver.SCHEME_ANDROID_RESOURCE)
+                    .authority(mContext.getPackageName())
+                    .appendPath(String.valueOf(id))
+                    .build();
+        } else if (ASSET_SCHEME.equals(scheme)) {
+            return Uri.parse("file:///android_asset/" + path);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the id of the drawable named or numbered by path, or 0 if there is none.
+     */
+    private int getDrawableId(String path) {
+        if (path.isEmpty()) {
+            return 0;
+        }
+        if (TextUtils.isDigitsOnly(path)) {
+            try {
+                return Integer.parseInt(path);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return mContext.getResources().getIdentifier(path, "drawable", mContext.getPackageName());
+    }
+
+    public static class Factory implements ModelLoaderFactory<String, InputStream> {
+        @Override
+        public ModelLoader<String, InputStream> build(Context context,
+                                                      GenericLoaderFactory factories) {
+            return new LocalStringLoader(context,
+                    factories.buildModelLoader(Uri.class, InputStream.class));
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
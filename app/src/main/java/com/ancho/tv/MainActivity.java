@@ -29,6 +29,9 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 /*
  * MainActivity class that loads MainFragment
  */
@@ -102,4 +105,10 @@ public class MainActivity
           }
      }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        ImageMetrics.dump(writer, prefix);
+    }
+
 }
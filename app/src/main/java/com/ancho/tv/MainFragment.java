@@ -14,17 +14,21 @@
 
 package com.ancho.tv;
 
-import java.net.URI;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
+import java.util.Set;
 
 import android.content.Intent;
 import android.graphics.Color;
+import android.graphics.Point;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
 import android.support.v17.leanback.app.BackgroundManager;
 import android.support.v17.leanback.app.BrowseFragment;
 import android.support.v17.leanback.app.HeadersFragment;
@@ -33,7 +37,6 @@ import android.support.v17.leanback.widget.ArrayObjectAdapter;
 import android.support.v17.leanback.widget.HeaderItem;
 import android.support.v17.leanback.widget.ImageCardView;
 import android.support.v17.leanback.widget.ListRow;
-import android.support.v17.leanback.widget.ListRowPresenter;
 import android.support.v17.leanback.widget.OnItemViewClickedListener;
 import android.support.v17.leanback.widget.OnItemViewSelectedListener;
 import android.support.v17.leanback.widget.Presenter;
@@ -49,27 +52,41 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.resource.drawable.GlideDrawable;
-import com.bumptech.glide.request.animation.GlideAnimation;
-import com.bumptech.glide.request.target.SimpleTarget;
-
 public class MainFragment extends BrowseFragment {
     private static final String TAG = "MainFragment";
 
+    // How long focus has to rest on a card before its background loads.
     private static final int BACKGROUND_UPDATE_DELAY = 300;
+    // Paging and prefetching only compare positions, so they may follow focus closely. Prefetch
+    // has to keep up while a direction key is held, which is when it is needed most.
+    private static final int PAGING_INTERVAL = 100;
+    private static final int PREFETCH_INTERVAL = 100;
     private static final int GRID_ITEM_WIDTH = 200;
     private static final int GRID_ITEM_HEIGHT = 200;
     private static final int NUM_ROWS = 6;
     private static final int NUM_COLS = 15;
+    private static final int PAGE_SIZE = NUM_ROWS * NUM_COLS;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int SAMPLE_CATALOG_SIZE = 300;
+    private static final String SNAPSHOT_FILE = "catalog.snapshot";
+    private static final String IMAGE_METRICS_FILE = "image_metrics.txt";
+    // Rows above and below a bound row that are filled along with it.
+    private static final int MATERIALIZE_AHEAD = 1;
 
-//    private final Handler mHandler = new Handler();
     private ArrayObjectAdapter mRowsAdapter;
-//    private Drawable mDefaultBackground;
-//    private DisplayMetrics mMetrics;
-//    private Timer mBackgroundTimer;
-//    private URI mBackgroundURI;
-//    private BackgroundManager mBackgroundManager;
+    private final Map<String, RowUpdater> mCategoryRows = new HashMap<String, RowUpdater>();
+    private final Map<Row, RowUpdater> mRowUpdaters = new HashMap<Row, RowUpdater>();
+    // Header ids are never reused, even after a category row is removed.
+    private long mNextHeaderId;
+    private CardPresenter mCardPresenter;
+    private CatalogLoader mCatalogLoader;
+    private CatalogSnapshot mSnapshot;
+    private CardPrefetcher mPrefetcher;
+    private CardRowPresenter mRowPresenter;
+    // Titles restored from the snapshot that no refreshed page has returned yet.
+    private final Set<Long> mUnconfirmedIds = new HashSet<Long>();
+    private BackgroundUpdater mBackgroundUpdater;
+    private final SelectionBus mSelectionBus = new SelectionBus();
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -78,6 +95,8 @@ public class MainFragment extends BrowseFragment {
 
         prepareBackgroundManager();
 
+        mPrefetcher = new CardPrefetcher(getActivity());
+
         setupUIElements();
 
         loadRows();
@@ -86,34 +105,75 @@ public class MainFragment extends BrowseFragment {
     }
 
     @Override
-    public void onDestroy() {
-        super.onDestroy();
-//        if (null != mBackgroundTimer) {
-//            Log.d(TAG, "onDestroy: " + mBackgroundTimer.toString());
-//            mBackgroundTimer.cancel();
-//        }
+    public void onStop() {
+        super.onStop();
+        if (mCatalogLoader != null && !MovieList.list.isEmpty()) {
+            mCatalogLoader.saveSnapshot(mSnapshot, MovieList.list.copy());
+        }
+        ImageMetrics.writeTo(new File(getActivity().getFilesDir(), IMAGE_METRICS_FILE));
     }
 
-    private void loadRows() {
-        List<Movie> list = MovieList.setupMovies();
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            evictRows();
+        }
+    }
 
-        mRowsAdapter = new ArrayObjectAdapter(new ListRowPresenter());
-        CardPresenter cardPresenter = new CardPresenter();
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        evictRows();
+    }
 
-        int i;
-        for (i = 0; i < NUM_ROWS; i++) {
-            if (i != 0) {
-                Collections.shuffle(list);
+    /**
+     * Empties the category rows that are off screen. They are filled again when they come back.
+     */
+    private void evictRows() {
+        int evicted = 0;
+        for (RowUpdater rowUpdater : mCategoryRows.values()) {
+            if (rowUpdater.evict()) {
+                evicted++;
             }
-            ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(cardPresenter);
-            for (int j = 0; j < NUM_COLS; j++) {
-                listRowAdapter.add(list.get(j % 5));
-            }
-                HeaderItem header = new HeaderItem(i, MovieList.MOVIE_CATEGORY[i]);
-            mRowsAdapter.add(new ListRow(header, listRowAdapter));
         }
+        Log.d(TAG, "Evicted " + evicted + " rows");
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mSelectionBus.release();
+        if (mCatalogLoader != null) {
+            mCatalogLoader.release();
+        }
+        for (RowUpdater rowUpdater : mCategoryRows.values()) {
+            rowUpdater.release();
+        }
+        if (mPrefetcher != null) {
+            mPrefetcher.cancel();
+        }
+        if (mRowPresenter != null) {
+            mRowPresenter.cancelWarmUp();
+        }
+        if (mBackgroundUpdater != null) {
+            mBackgroundUpdater.release();
+        }
+    }
 
-            HeaderItem gridHeader = new HeaderItem(i, "PREFERENCES");
+    private void loadRows() {
+        MovieList.clear();
+        mCategoryRows.clear();
+        mRowUpdaters.clear();
+        mUnconfirmedIds.clear();
+        mNextHeaderId = 0;
+        mCardPresenter = new CardPresenter();
+        mRowPresenter = createRowPresenter();
+        mRowPresenter.setRowBindingListener(new LazyRowBinder());
+        mRowsAdapter = new ArrayObjectAdapter(mRowPresenter);
+
+        // Category rows are inserted above this row as their first titles arrive.
+            HeaderItem gridHeader = new HeaderItem(-1, "PREFERENCES");
 
         GridItemPresenter mGridPresenter = new GridItemPresenter();
         ArrayObjectAdapter gridRowAdapter = new ArrayObjectAdapter(mGridPresenter);
@@ -126,15 +186,162 @@ public class MainFragment extends BrowseFragment {
 
         setAdapter(mRowsAdapter);
 
+        // Render the last known catalog first, then refresh it from the source.
+        mSnapshot = new CatalogSnapshot(new File(getActivity().getFilesDir(), SNAPSHOT_FILE));
+        mCatalogLoader = new CatalogLoader(new SampleCatalogSource(SAMPLE_CATALOG_SIZE), PAGE_SIZE,
+                new CatalogPageListener());
+        mCatalogLoader.restoreSnapshot(mSnapshot);
+        mCatalogLoader.loadNextPage();
+    }
+
+    /**
+     * Sizes the shared card pool to the cards on screen plus one more row of them, and warms it
+     * up with two rows' worth so scrolling down does not inflate cards.
+     */
+    private CardRowPresenter createRowPresenter() {
+        Point display = Utils.getDisplaySize(getActivity());
+        int cardsPerRow = display.x / CardPresenter.getCardWidth(getActivity()) + 2;
+        int visibleRows = display.y / CardPresenter.getCardHeight(getActivity()) + 1;
+        return new CardRowPresenter(mCardPresenter, cardsPerRow * (visibleRows + 1),
+                cardsPerRow * 2);
+    }
+
+    private final class CatalogPageListener implements CatalogLoader.Listener {
+        @Override
+        public void onSnapshotRestored(List<Movie> movies, RowModel rows) {
+            for (int i = 0; i < movies.size(); i++) {
+                mUnconfirmedIds.add(movies.get(i).getId());
+            }
+            mergePage(movies, rows);
+        }
+
+        @Override
+        public void onPageLoaded(List<Movie> page, RowModel rows, boolean hasMore) {
+            mergePage(page, rows);
+
+            // Keep refreshing until every title restored from the snapshot has been reconciled.
+            // Titles still unconfirmed once the source runs out of pages have been deleted.
+            if (mUnconfirmedIds.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < page.size(); i++) {
+                mUnconfirmedIds.remove(page.get(i).getId());
+            }
+            if (hasMore && !mUnconfirmedIds.isEmpty()) {
+                mCatalogLoader.loadNextPage();
+            } else if (!hasMore) {
+                removeTitles(mUnconfirmedIds);
+                mUnconfirmedIds.clear();
+            }
+        }
+
+        private void removeTitles(Set<Long> ids) {
+            for (String category : MovieList.remove(ids)) {
+                RowUpdater rowUpdater = mCategoryRows.get(category);
+                if (rowUpdater == null) {
+                    continue;
+                }
+                if (MovieList.categories.size(category) > 0) {
+                    rowUpdater.update(Collections.<Long>emptyList());
+                } else {
+                    removeCategoryRow(category, rowUpdater);
+                }
+            }
+        }
+
+        private void removeCategoryRow(String category, RowUpdater rowUpdater) {
+            rowUpdater.release();
+            mCategoryRows.remove(category);
+            for (Map.Entry<Row, RowUpdater> entry : mRowUpdaters.entrySet()) {
+                if (entry.getValue() == rowUpdater) {
+                    mRowsAdapter.remove(entry.getKey());
+                    mRowUpdaters.remove(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        private void mergePage(List<Movie> page, RowModel rows) {
+            List<Long> changed = new ArrayList<Long>();
+            MovieList.merge(page, changed);
+
+            // Rows are diffed against their category off the main thread; titles that moved to
+            // another category leave their old row too.
+            for (int i = 0; i < rows.getRowCount(); i++) {
+                getCategoryRow(rows.getCategory(i)).update(changed);
+            }
+            if (!changed.isEmpty()) {
+                for (RowUpdater rowUpdater : mCategoryRows.values()) {
+                    if (rowUpdater.isOutOfSync()) {
+                        rowUpdater.update(changed);
+                    }
+                }
+            }
+        }
+
+        private RowUpdater getCategoryRow(String category) {
+            RowUpdater rowUpdater = mCategoryRows.get(category);
+            if (rowUpdater == null) {
+                ArrayObjectAdapter rowAdapter = new ArrayObjectAdapter(mCardPresenter);
+                rowUpdater = new RowUpdater(rowAdapter, category);
+                mCategoryRows.put(category, rowUpdater);
+                HeaderItem header = new HeaderItem(mNextHeaderId++,
+                        category != null ? category : "");
+                ListRow row = new ListRow(header, rowAdapter);
+                mRowUpdaters.put(row, rowUpdater);
+                // The row stays empty until LazyRowBinder sees it coming on screen.
+                mRowsAdapter.add(mRowsAdapter.size() - 1, row);
+            }
+            return rowUpdater;
+        }
+
+        @Override
+        public void onLoadFailed(IOException e) {
+            Utils.showToast(getActivity(), R.string.catalog_load_error);
+        }
+    }
+
+    /*
+     * Fills category rows when their view is bound, which happens as they approach the screen
+     * either by scrolling or by selecting their header, together with the rows next to them.
+     * Startup therefore only pays for the rows on screen, however many categories there are.
+     */
+    private final class LazyRowBinder implements CardRowPresenter.RowBindingListener {
+        @Override
+        public void onRowBound(Row row) {
+            RowUpdater rowUpdater = mRowUpdaters.get(row);
+            if (rowUpdater == null) {
+                return;
+            }
+            rowUpdater.setBound(true);
+            int index = mRowsAdapter.indexOf(row);
+            int end = Math.min(index + MATERIALIZE_AHEAD, mRowsAdapter.size() - 1);
+            for (int i = Math.max(index - MATERIALIZE_AHEAD, 0); i <= end; i++) {
+                RowUpdater neighbour = mRowUpdaters.get(mRowsAdapter.get(i));
+                if (neighbour != null) {
+                    neighbour.materialize();
+                }
+            }
+        }
+
+        @Override
+        public void onRowUnbound(Row row) {
+            RowUpdater rowUpdater = mRowUpdaters.get(row);
+            if (rowUpdater != null) {
+                rowUpdater.setBound(false);
+            }
+        }
     }
 
     private void prepareBackgroundManager() {
-//
-//        mBackgroundManager = BackgroundManager.getInstance(getActivity());
-//        mBackgroundManager.attach(getActivity().getWindow());
-////        mDefaultBackground = getResources().getDrawable(R.drawable.default_background);
-//        mMetrics = new DisplayMetrics();
-//        getActivity().getWindowManager().getDefaultDisplay().getMetrics(mMetrics);
+        BackgroundManager backgroundManager = BackgroundManager.getInstance(getActivity());
+        backgroundManager.attach(getActivity().getWindow());
+        Drawable defaultBackground = getResources().getDrawable(R.drawable.default_background);
+        DisplayMetrics metrics = new DisplayMetrics();
+        getActivity().getWindowManager().getDefaultDisplay().getMetrics(metrics);
+        // The selection bus already waits for focus to settle.
+        mBackgroundUpdater = new BackgroundUpdater(getActivity(), backgroundManager, metrics,
+                defaultBackground, 0);
     }
 
     private void setupUIElements() {
@@ -156,13 +363,15 @@ public class MainFragment extends BrowseFragment {
 
             @Override
             public void onClick(View view) {
-                Toast.makeText(getActivity(), "Implement your own in-app search", Toast.LENGTH_LONG)
-                        .show();
+                startActivity(new Intent(getActivity(), SearchActivity.class));
             }
         });
 
         setOnItemViewClickedListener(new ItemViewClickedListener());
         setOnItemViewSelectedListener(new ItemViewSelectedListener());
+        mSelectionBus.addPassingListener(new PagingListener(), PAGING_INTERVAL);
+        mSelectionBus.addPassingListener(new PrefetchListener(), PREFETCH_INTERVAL);
+        mSelectionBus.addSettledListener(new BackgroundListener(), BACKGROUND_UPDATE_DELAY);
     }
 
     private final class ItemViewClickedListener implements OnItemViewClickedListener {
@@ -174,7 +383,7 @@ public class MainFragment extends BrowseFragment {
                 Movie movie = (Movie) item;
                 Log.d(TAG, "Item: " + item.toString());
                 Intent intent = new Intent(getActivity(), DetailsActivity.class);
-                intent.putExtra(DetailsActivity.MOVIE, movie);
+                intent.putExtra(DetailsActivity.MOVIE, movie.getId());
 
                 Bundle bundle = ActivityOptionsCompat.makeSceneTransitionAnimation(
                         getActivity(),
@@ -193,59 +402,51 @@ public class MainFragment extends BrowseFragment {
         }
     }
 
+    /*
+     * Fires on every D-pad step, so it only hands the selection to the bus.
+     */
     private final class ItemViewSelectedListener implements OnItemViewSelectedListener {
         @Override
         public void onItemSelected(Presenter.ViewHolder itemViewHolder, Object item,
                                    RowPresenter.ViewHolder rowViewHolder, Row row) {
-//            if (item instanceof Movie) {
-//                mBackgroundURI = ((Movie) item).getBackgroundImageURI();
-//                startBackgroundTimer();
-//            }
+            mSelectionBus.post(item, row);
+        }
+    }
 
+    private final class PagingListener implements SelectionBus.Listener {
+        @Override
+        public void onSelected(Object item, Row row) {
+            if (item instanceof Movie && row instanceof ListRow) {
+                ArrayObjectAdapter adapter = (ArrayObjectAdapter) ((ListRow) row).getAdapter();
+                int position = adapter.indexOf(item);
+                if (position >= 0 && position >= adapter.size() - PREFETCH_DISTANCE) {
+                    mCatalogLoader.loadNextPage();
+                }
+            }
         }
     }
 
-//    protected void updateBackground(String uri) {
-//        int width = mMetrics.widthPixels;
-//        int height = mMetrics.heightPixels;
-//        Glide.with(getActivity())
-//                .load(uri)
-//                .centerCrop()
-//                .error(mDefaultBackground)
-//                .into(new SimpleTarget<GlideDrawable>(width, height) {
-//                    @Override
-//                    public void onResourceReady(GlideDrawable resource,
-//                                                GlideAnimation<? super GlideDrawable>
-//                                                        glideAnimation) {
-//                        mBackgroundManager.setDrawable(resource);
-//                    }
-//                });
-//        mBackgroundTimer.cancel();
-//    }
-
-//    private void startBackgroundTimer() {
-//        if (null != mBackgroundTimer) {
-//            mBackgroundTimer.cancel();
-//        }
-//        mBackgroundTimer = new Timer();
-//        mBackgroundTimer.schedule(new UpdateBackgroundTask(), BACKGROUND_UPDATE_DELAY);
-//    }
-
-//    private class UpdateBackgroundTask extends TimerTask {
-//
-//        @Override
-//        public void run() {
-//            mHandler.post(new Runnable() {
-//                @Override
-//                public void run() {
-//                    if (mBackgroundURI != null) {
-//                        updateBackground(mBackgroundURI.toString());
-//                    }
-//                }
-//            });
-//
-//        }
-//    }
+    private final class PrefetchListener implements SelectionBus.Listener {
+        @Override
+        public void onSelected(Object item, Row row) {
+            if (item instanceof Movie && row instanceof ListRow) {
+                // The row may have changed since the selection, e.g. been evicted.
+                int position = ((ArrayObjectAdapter) ((ListRow) row).getAdapter()).indexOf(item);
+                if (position >= 0) {
+                    mPrefetcher.onItemSelected(mRowsAdapter, mRowsAdapter.indexOf(row), position);
+                }
+            }
+        }
+    }
+
+    private final class BackgroundListener implements SelectionBus.Listener {
+        @Override
+        public void onSelected(Object item, Row row) {
+            if (item instanceof Movie) {
+                mBackgroundUpdater.setBackgroundUri(((Movie) item).getBackgroundImageUrl());
+            }
+        }
+    }
 
     private class GridItemPresenter extends Presenter {
         @Override
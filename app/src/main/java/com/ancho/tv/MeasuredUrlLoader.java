@@ -0,0 +1,142 @@
+package com.ancho.tv;
+
+import android.content.Context;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GenericLoaderFactory;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.StreamModelLoader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Loads an ImageMetrics.Url through the string loader and records its source fetch on it: the
+ * bytes read, the time spent opening the source and waiting for its bytes, and the rest of the
+ * time until Glide is done decoding and cleans up. The fetcher id is the string fetcher's, so
+ * measured loads share their caches with plain ones. Registered by TvGlideModule.
+ */
+public class MeasuredUrlLoader implements StreamModelLoader<ImageMetrics.Url> {
+    private final ModelLoader<String, InputStream> mStringLoader;
+
+    public MeasuredUrlLoader(ModelLoader<String, InputStream> stringLoader) {
+        mStringLoader = stringLoader;
+    }
+
+    @Override
+    public DataFetcher<InputStream> getResourceFetcher(ImageMetrics.Url model, int width,
+                                                       int height) {
+        DataFetcher<InputStream> fetcher =
+                mStringLoader.getResourceFetcher(model.getUrl(), width, height);
+        return fetcher != null ? new MeasuredFetcher(model, fetcher) : null;
+    }
+
+    private static boolean isNetwork(String url) {
+        return url != null && (url.regionMatches(true, 0, "http://", 0, 7)
+                || url.regionMatches(true, 0, "https://", 0, 8));
+    }
+
+    private static final class MeasuredFetcher implements DataFetcher<InputStream> {
+        private final ImageMetrics.Url mModel;
+        private final DataFetcher<InputStream> mFetcher;
+        private CountingInputStream mStream;
+        private long mOpenNanos;
+        private long mOpenedNanos;
+
+        MeasuredFetcher(ImageMetrics.Url model, DataFetcher<InputStream> fetcher) {
+            mModel = model;
+            mFetcher = fetcher;
+        }
+
+        @Override
+        public InputStream loadData(Priority priority) throws Exception {
+            long start = System.nanoTime();
+            InputStream stream = mFetcher.loadData(priority);
+            mOpenedNanos = System.nanoTime();
+            mOpenNanos = mOpenedNanos - start;
+            mStream = stream != null ? new CountingInputStream(stream) : null;
+            return mStream;
+        }
+
+        @Override
+        public void cleanup() {
+            mFetcher.cleanup();
+            if (mStream != null) {
+                long fetchNanos = mOpenNanos + mStream.mReadNanos;
+                long decodeNanos = System.nanoTime() - mOpenedNanos - mStream.mReadNanos;
+                mModel.onFetched(isNetwork(mModel.getUrl()), mStream.mCount,
+                        fetchNanos / 1000000, Math.max(0, decodeNanos) / 1000000);
+                mStream = null;
+            }
+        }
+
+        @Override
+        public String getId() {
+            return mFetcher.getId();
+        }
+
+        @Override
+        public void cancel() {
+            mFetcher.cancel();
+        }
+    }
+
+    /*
+     * Counts the bytes read and the time spent blocked reading them.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long mCount;
+        long mReadNanos;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            mReadNanos += System.nanoTime() - start;
+            if (b >= 0) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, count);
+            mReadNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long start = System.nanoTime();
+            long skipped = super.skip(count);
+            mReadNanos += System.nanoTime() - start;
+            mCount += skipped;
+            return skipped;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<ImageMetrics.Url, InputStream> {
+        @Override
+        public ModelLoader<ImageMetrics.Url, InputStream> build(Context context,
+                                                                GenericLoaderFactory factories) {
+            return new MeasuredUrlLoader(factories.buildModelLoader(String.class,
+                    InputStream.class));
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
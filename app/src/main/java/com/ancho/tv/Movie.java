@@ -14,8 +14,6 @@
 
 package com.ancho.tv;
 
-import android.util.Log;
-
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -26,7 +24,6 @@ import java.net.URISyntaxException;
  */
 public class Movie implements Serializable {
     static final long serialVersionUID = 727566175075960653L;
-    private static long count = 0;
     private long id;
     private String title;
     private String description;
@@ -39,14 +36,6 @@ public class Movie implements Serializable {
     public Movie() {
     }
 
-    public static long getCount() {
-        return count;
-    }
-
-    public static void incCount() {
-        count++;
-    }
-
     public long getId() {
         return id;
     }
@@ -64,6 +53,10 @@ public class Movie implements Serializable {
     }
 
     public String getDescription() {
+        if (description == null) {
+            // Catalog movies leave their description in the compact store until it is needed.
+            description = MovieList.list.getDescription(id);
+        }
         return description;
     }
 
@@ -113,10 +106,8 @@ public class Movie implements Serializable {
 
     public URI getBackgroundImageURI() {
         try {
-            Log.d("BACK MOVIE: ", bgImageUrl);
             return new URI(getBackgroundImageUrl());
         } catch (URISyntaxException e) {
-            Log.d("URI exception: ", bgImageUrl);
             return null;
         }
     }
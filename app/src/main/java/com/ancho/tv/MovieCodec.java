@@ -0,0 +1,141 @@
+package com.ancho.tv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Compact binary encoding of movies for files and byte buffers. Fields are written in a fixed
+ * order without names or class metadata, strings as length-prefixed UTF-8.
+ */
+public final class MovieCodec {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MovieCodec() {
+    }
+
+    public static void write(DataOutput out, Movie movie) throws IOException {
+        write(out, movie, movie.getDescription());
+    }
+
+    /**
+     * Writes movie with the given description. Unlike Movie.getDescription() this never falls
+     * back to the shared catalog, so it is safe off the main thread.
+     */
+    public static void write(DataOutput out, Movie movie, String description)
+            throws IOException {
+        out.writeLong(movie.getId());
+        writeString(out, movie.getTitle());
+        writeString(out, description);
+        writeString(out, movie.getBackgroundImageUrl());
+        writeString(out, movie.getCardImageUrl());
+        writeString(out, movie.getVideoUrl());
+        writeString(out, movie.getStudio());
+        writeString(out, movie.getCategory());
+    }
+
+    public static Movie read(DataInput in) throws IOException {
+        Movie movie = new Movie();
+        movie.setId(in.readLong());
+        movie.setTitle(readString(in));
+        movie.setDescription(readString(in));
+        movie.setBackgroundImageUrl(readString(in));
+        movie.setCardImageUrl(readString(in));
+        movie.setVideoUrl(readString(in));
+        movie.setStudio(readString(in));
+        movie.setCategory(readString(in));
+        return movie;
+    }
+
+    /**
+     * Reads a movie from a buffer, e.g. a memory-mapped file, without an intermediate stream.
+     */
+    public static Movie read(ByteBuffer in) throws IOException {
+        try {
+            Movie movie = new Movie();
+            movie.setId(in.getLong());
+            movie.setTitle(readString(in));
+            movie.setDescription(readString(in));
+            movie.setBackgroundImageUrl(readString(in));
+            movie.setCardImageUrl(readString(in));
+            movie.setVideoUrl(readString(in));
+            movie.setStudio(readString(in));
+            movie.setCategory(readString(in));
+            return movie;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated movie record", e);
+        }
+    }
+
+    public static void writeList(DataOutput out, List<Movie> movies) throws IOException {
+        out.writeInt(movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            write(out, movies.get(i));
+        }
+    }
+
+    public static List<Movie> readList(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<Movie> movies = new ArrayList<Movie>(size);
+        for (int i = 0; i < size; i++) {
+            movies.add(read(in));
+        }
+        return movies;
+    }
+
+    public static byte[] encode(List<Movie> movies) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeList(new DataOutputStream(bytes), movies);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<Movie> decode(byte[] data) throws IOException {
+        return readList(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("Truncated string of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
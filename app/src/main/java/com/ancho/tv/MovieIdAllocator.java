@@ -0,0 +1,84 @@
+package com.ancho.tv;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hands out unique movie ids from any thread without locking. Ids are bound to the key a catalog
+ * source identifies a title by, so reloading or refreshing the catalog gives a title it has
+ * already seen the same id again.
+ */
+public final class MovieIdAllocator {
+    private final AtomicLong mNextId = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> mIds = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Returns the id bound to key, allocating a new one on first use. A null key always gets
+     * a fresh id.
+     */
+    public long idFor(String key) {
+        if (key == null) {
+            return mNextId.getAndIncrement();
+        }
+        Long id = mIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        Long allocated = mNextId.getAndIncrement();
+        id = mIds.putIfAbsent(key, allocated);
+        return id != null ? id : allocated;
+    }
+
+    /**
+     * Returns a live, read-only view of the key to id bindings. Safe to iterate on any thread.
+     */
+    public Map<String, Long> getIds() {
+        return Collections.unmodifiableMap(mIds);
+    }
+
+    /**
+     * Returns the id the next new title gets. Every id below it may have been handed out.
+     */
+    public long getNextId() {
+        return mNextId.get();
+    }
+
+    /**
+     * Drops the bindings of titles that left the catalog. Their ids are never handed out again;
+     * should such a title come back it gets a fresh one.
+     */
+    public void remove(Set<Long> ids) {
+        Iterator<Long> bound = mIds.values().iterator();
+        while (bound.hasNext()) {
+            if (ids.contains(bound.next())) {
+                bound.remove();
+            }
+        }
+    }
+
+    /**
+     * Binds key to an id restored from elsewhere, e.g. a saved catalog, and makes sure fresh ids
+     * are never handed out twice.
+     */
+    public void restore(String key, long id) {
+        if (key != null) {
+            mIds.putIfAbsent(key, id);
+        }
+        restoreNextId(id + 1);
+    }
+
+    /**
+     * Makes sure no id below nextId is handed out again, e.g. after restoring a saved catalog
+     * whose highest ids belonged to titles that were removed since.
+     */
+    public void restoreNextId(long nextId) {
+        long next = mNextId.get();
+        while (next < nextId && !mNextId.compareAndSet(next, nextId)) {
+            next = mNextId.get();
+        }
+    }
+}
@@ -1,79 +1,117 @@
 package com.ancho.tv;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public final class MovieList {
-    public static final String MOVIE_CATEGORY[] = {
-            "Category Zero",
-            "Category One",
-            "Category Two",
-            "Category Three",
-            "Category Four",
-            "Category Five",
-    };
+    /*
+     * The part of the catalog loaded so far. Pages are merged in on the main thread as they
+     * arrive from a CatalogLoader.
+     */
+    public static final MovieStore list = new MovieStore();
 
-    public static List<Movie> list;
+    /*
+     * Ids of the loaded movies by category, maintained as pages are appended.
+     */
+    public static final CategoryIndex categories = new CategoryIndex();
 
-    public static List<Movie> setupMovies() {
-        list = new ArrayList<Movie>();
-        String title[] = {
-                "Zeitgeist 2010_ Year in Review",
-                "Google Demo Slam_ 20ft Search",
-                "Introducing Gmail Blue",
-                "Introducing Google Fiber to the Pole",
-                "Introducing Google Nose"
-        };
+    /*
+     * Shared by all catalog sources, which may build movies on several threads at once.
+     */
+    public static final MovieIdAllocator ids = new MovieIdAllocator();
 
-        String description = "Fusce id nisi turpis. Praesent viverra bibendum semper. "
-                + "Donec tristique, orci sed semper lacinia, quam erat rhoncus massa, non congue tellus est "
-                + "quis tellus. Sed mollis orci venenatis quam scelerisque accumsan. Curabitur a massa sit "
-                + "amet mi accumsan mollis sed et magna. Vivamus sed aliquam risus. Nulla eget dolor in elit "
-                + "facilisis mattis. Ut aliquet luctus lacus. Phasellus nec commodo erat. Praesent tempus id "
-                + "lectus ac scelerisque. Maecenas pretium cursus lectus id volutpat.";
+    /*
+     * Full-text index of the loaded movies. Filled by the CatalogLoader thread as pages arrive.
+     */
+    public static final SearchIndex search = new SearchIndex();
 
-        String videoUrl[] = {
-                "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
-                "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
-                "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
-                "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
-                "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4"
-        };
-        String bgImageUrl[] = {
-                "drawable://"+R.drawable.bm_global_bg,
-                "drawable://"+R.drawable.bm_global_bg,
-                "drawable://"+R.drawable.bm_global_bg,
-                "drawable://"+R.drawable.bm_global_bg,
-                "drawable://"+R.drawable.bm_global_bg,
-        };
-        String cardImageUrl[] = {
-                "http://s.bemetoy.com/img/0d/0d2f581494cccfd310760ea98dd344b0.png",
-                "http://s.bemetoy.com/img/c8/c82d575937b5c6ffbbcd8efa3d0657df.png",
-                "http://s.bemetoy.com/img/22/22494560fe87faab91ef70d2abdebf39.png",
-                "http://s.bemetoy.com/img/c8/c82d575937b5c6ffbbcd8efa3d0657df.png",
-                "http://s.bemetoy.com/img/22/22494560fe87faab91ef70d2abdebf39.png"
-        };
+    /**
+     * Merges a page into the catalog: titles that are already loaded are replaced in place if
+     * their content differs, new ones are appended. Adds the ids of replaced titles to changed,
+     * if given.
+     */
+    public static void merge(List<Movie> page, List<Long> changed) {
+        for (int i = 0; i < page.size(); i++) {
+            Movie movie = page.get(i);
+            int index = list.indexOfId(movie.getId());
+            if (index < 0) {
+                list.add(movie);
+                categories.add(movie.getCategory(), movie.getId());
+            } else {
+                Movie previous = list.get(index);
+                if (!sameContent(previous, list.getDescriptionAt(index), movie)) {
+                    list.set(index, movie);
+                    if (!equal(previous.getCategory(), movie.getCategory())) {
+                        categories.remove(previous.getCategory(), movie.getId());
+                        categories.add(movie.getCategory(), movie.getId());
+                    }
+                    if (changed != null) {
+                        changed.add(movie.getId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the titles with the given ids from the catalog, the category index, the search
+     * index and the id bindings, e.g. once a refresh shows that the source no longer has them. Returns the categories
+     * that lost titles.
+     */
+    public static Set<String> remove(Set<Long> ids) {
+        Set<String> affected = new HashSet<String>();
+        for (Long id : ids) {
+            int index = list.indexOfId(id);
+            if (index >= 0) {
+                String category = list.getCategory(index);
+                categories.remove(category, id);
+                search.remove(id);
+                affected.add(category);
+            }
+        }
+        list.removeIds(ids);
+        MovieList.ids.remove(ids);
+        return affected;
+    }
+
+    public static void clear() {
+        list.clear();
+        categories.clear();
+        search.clear();
+    }
+
+    /**
+     * Resolves a movie id passed between screens, or returns null if the movie is not loaded,
+     * e.g. after the process was restarted.
+     */
+    public static Movie findById(long id) {
+        int index = list.indexOfId(id);
+        return index < 0 ? null : list.get(index);
+    }
 
-        list.add(buildMovieInfo("主页", title[0],
-                description, "Studio Zero", videoUrl[0], cardImageUrl[0], bgImageUrl[0]));
-        list.add(buildMovieInfo("category", title[1],
-                description, "Studio One", videoUrl[1], cardImageUrl[1], bgImageUrl[1]));
-        list.add(buildMovieInfo("category", title[2],
-                description, "Studio Two", videoUrl[2], cardImageUrl[2], bgImageUrl[2]));
-        list.add(buildMovieInfo("category", title[3],
-                description, "Studio Three", videoUrl[3], cardImageUrl[3], bgImageUrl[3]));
-        list.add(buildMovieInfo("category", title[4],
-                description, "Studio Four", videoUrl[4], cardImageUrl[4], bgImageUrl[4]));
+    private static boolean sameContent(Movie previous, String description, Movie movie) {
+        return equal(previous.getTitle(), movie.getTitle())
+                && equal(previous.getStudio(), movie.getStudio())
+                && equal(previous.getCategory(), movie.getCategory())
+                && equal(previous.getVideoUrl(), movie.getVideoUrl())
+                && equal(previous.getCardImageUrl(), movie.getCardImageUrl())
+                && equal(previous.getBackgroundImageUrl(), movie.getBackgroundImageUrl())
+                && equal(description, movie.getDescription());
+    }
 
-        return list;
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
     }
 
-    private static Movie buildMovieInfo(String category, String title,
+    /**
+     * Builds a movie whose id is bound to key, the identity of the title in its catalog source.
+     */
+    static Movie buildMovieInfo(String key, String category, String title,
             String description, String studio, String videoUrl, String cardImageUrl,
             String bgImageUrl) {
         Movie movie = new Movie();
-        movie.setId(Movie.getCount());
-        Movie.incCount();
+        movie.setId(ids.idFor(key));
         movie.setTitle(title);
         movie.setDescription(description);
         movie.setStudio(studio);
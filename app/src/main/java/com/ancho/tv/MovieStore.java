@@ -0,0 +1,376 @@
+package com.ancho.tv;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/*
+ * Column oriented, memory lean storage for the catalog. Per-title fields live in primitive or
+ * array-backed columns, repeated values such as studio, category and url prefixes are interned
+ * and descriptions are kept as UTF-8 bytes that are only decoded when a screen asks for them.
+ * Movie objects are materialized on demand by get() and are not retained by the store.
+ */
+public final class MovieStore extends AbstractList<Movie> implements RandomAccess {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StringPool mPool;
+    private int mSize;
+
+    private long[] mIds = new long[INITIAL_CAPACITY];
+    private String[] mTitles = new String[INITIAL_CAPACITY];
+    private int[] mStudios = new int[INITIAL_CAPACITY];
+    private int[] mCategories = new int[INITIAL_CAPACITY];
+    private int[] mDescriptions = new int[INITIAL_CAPACITY];
+    private int[] mVideoPrefixes = new int[INITIAL_CAPACITY];
+    private String[] mVideoNames = new String[INITIAL_CAPACITY];
+    private int[] mCardPrefixes = new int[INITIAL_CAPACITY];
+    private String[] mCardNames = new String[INITIAL_CAPACITY];
+    private int[] mBgPrefixes = new int[INITIAL_CAPACITY];
+    private String[] mBgNames = new String[INITIAL_CAPACITY];
+
+    // Distinct descriptions, deduplicated by content and counted by the titles using them.
+    // Slots whose count drops to zero are put on a free list and reused.
+    private byte[][] mDescriptionBytes = new byte[INITIAL_CAPACITY][];
+    private int[] mDescriptionRefs = new int[INITIAL_CAPACITY];
+    private int mDescriptionCount;
+    private int[] mFreeDescriptions = new int[INITIAL_CAPACITY];
+    private int mFreeDescriptionCount;
+    private final Map<Integer, Integer> mDescriptionsByHash;
+
+    // Open addressing id -> index + 1 table; a zero value marks an empty slot.
+    private long[] mIndexKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] mIndexValues = new int[INITIAL_CAPACITY * 2];
+
+    public MovieStore() {
+        mPool = new StringPool();
+        mDescriptionsByHash = new HashMap<Integer, Integer>();
+    }
+
+    private MovieStore(MovieStore other) {
+        mPool = other.mPool.copy();
+        mDescriptionsByHash = new HashMap<Integer, Integer>(other.mDescriptionsByHash);
+        mSize = other.mSize;
+        mIds = other.mIds.clone();
+        mTitles = other.mTitles.clone();
+        mStudios = other.mStudios.clone();
+        mCategories = other.mCategories.clone();
+        mDescriptions = other.mDescriptions.clone();
+        mVideoPrefixes = other.mVideoPrefixes.clone();
+        mVideoNames = other.mVideoNames.clone();
+        mCardPrefixes = other.mCardPrefixes.clone();
+        mCardNames = other.mCardNames.clone();
+        mBgPrefixes = other.mBgPrefixes.clone();
+        mBgNames = other.mBgNames.clone();
+        mDescriptionBytes = other.mDescriptionBytes.clone();
+        mDescriptionRefs = other.mDescriptionRefs.clone();
+        mDescriptionCount = other.mDescriptionCount;
+        mFreeDescriptions = other.mFreeDescriptions.clone();
+        mFreeDescriptionCount = other.mFreeDescriptionCount;
+        mIndexKeys = other.mIndexKeys.clone();
+        mIndexValues = other.mIndexValues.clone();
+    }
+
+    /**
+     * Returns an independent copy that another thread can read while this store keeps
+     * changing. Only the column arrays are copied; strings and description bytes are shared.
+     */
+    public MovieStore copy() {
+        return new MovieStore(this);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Materializes the movie at index. The description is decoded lazily by the movie itself.
+     */
+    @Override
+    public Movie get(int index) {
+        checkIndex(index);
+        Movie movie = new Movie();
+        movie.setId(mIds[index]);
+        movie.setTitle(mTitles[index]);
+        movie.setStudio(mPool.get(mStudios[index]));
+        movie.setCategory(mPool.get(mCategories[index]));
+        movie.setVideoUrl(join(mVideoPrefixes[index], mVideoNames[index]));
+        movie.setCardImageUrl(join(mCardPrefixes[index], mCardNames[index]));
+        movie.setBackgroundImageUrl(join(mBgPrefixes[index], mBgNames[index]));
+        return movie;
+    }
+
+    @Override
+    public boolean add(Movie movie) {
+        ensureCapacity(mSize + 1);
+        mSize++;
+        write(mSize - 1, movie);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Replaces the movie at index, e.g. with a refreshed version of the same title.
+     */
+    @Override
+    public Movie set(int index, Movie movie) {
+        Movie previous = get(index);
+        int previousDescription = mDescriptions[index];
+        write(index, movie);
+        releaseDescription(previousDescription);
+        return previous;
+    }
+
+    private void write(int index, Movie movie) {
+        mIds[index] = movie.getId();
+        mTitles[index] = movie.getTitle();
+        mStudios[index] = mPool.intern(movie.getStudio());
+        mCategories[index] = mPool.intern(movie.getCategory());
+        mDescriptions[index] = internDescription(movie.getDescription());
+        mVideoPrefixes[index] = mPool.intern(prefixOf(movie.getVideoUrl()));
+        mVideoNames[index] = nameOf(movie.getVideoUrl());
+        mCardPrefixes[index] = mPool.intern(prefixOf(movie.getCardImageUrl()));
+        mCardNames[index] = nameOf(movie.getCardImageUrl());
+        mBgPrefixes[index] = mPool.intern(prefixOf(movie.getBackgroundImageUrl()));
+        mBgNames[index] = nameOf(movie.getBackgroundImageUrl());
+        putIndex(movie.getId(), index);
+    }
+
+    /**
+     * Removes the movies with the given ids, keeping the others in order.
+     */
+    public void removeIds(Set<Long> ids) {
+        int kept = 0;
+        for (int i = 0; i < mSize; i++) {
+            if (ids.contains(mIds[i])) {
+                releaseDescription(mDescriptions[i]);
+                continue;
+            }
+            if (kept != i) {
+                move(i, kept);
+            }
+            kept++;
+        }
+        if (kept == mSize) {
+            return;
+        }
+        Arrays.fill(mTitles, kept, mSize, null);
+        Arrays.fill(mVideoNames, kept, mSize, null);
+        Arrays.fill(mCardNames, kept, mSize, null);
+        Arrays.fill(mBgNames, kept, mSize, null);
+        mSize = kept;
+        Arrays.fill(mIndexValues, 0);
+        for (int i = 0; i < mSize; i++) {
+            putIndex(mIds[i], i);
+        }
+        modCount++;
+    }
+
+    private void move(int from, int to) {
+        mIds[to] = mIds[from];
+        mTitles[to] = mTitles[from];
+        mStudios[to] = mStudios[from];
+        mCategories[to] = mCategories[from];
+        mDescriptions[to] = mDescriptions[from];
+        mVideoPrefixes[to] = mVideoPrefixes[from];
+        mVideoNames[to] = mVideoNames[from];
+        mCardPrefixes[to] = mCardPrefixes[from];
+        mCardNames[to] = mCardNames[from];
+        mBgPrefixes[to] = mBgPrefixes[from];
+        mBgNames[to] = mBgNames[from];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mTitles, 0, mSize, null);
+        Arrays.fill(mVideoNames, 0, mSize, null);
+        Arrays.fill(mCardNames, 0, mSize, null);
+        Arrays.fill(mBgNames, 0, mSize, null);
+        Arrays.fill(mDescriptionBytes, 0, mDescriptionCount, null);
+        Arrays.fill(mIndexValues, 0);
+        mDescriptionsByHash.clear();
+        mDescriptionCount = 0;
+        mFreeDescriptionCount = 0;
+        mPool.clear();
+        mSize = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the index of the movie with the given id, or -1 if it is not in the store.
+     */
+    public int indexOfId(long id) {
+        int mask = mIndexKeys.length - 1;
+        for (int slot = hash(id) & mask; mIndexValues[slot] != 0; slot = (slot + 1) & mask) {
+            if (mIndexKeys[slot] == id) {
+                return mIndexValues[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    public long getId(int index) {
+        checkIndex(index);
+        return mIds[index];
+    }
+
+    public String getTitle(int index) {
+        checkIndex(index);
+        return mTitles[index];
+    }
+
+    public String getCategory(int index) {
+        checkIndex(index);
+        return mPool.get(mCategories[index]);
+    }
+
+    /**
+     * Decodes the description of the movie with the given id, or returns null if it is unknown.
+     */
+    public String getDescription(long id) {
+        int index = indexOfId(id);
+        return index < 0 ? null : getDescriptionAt(index);
+    }
+
+    public String getDescriptionAt(int index) {
+        checkIndex(index);
+        if (mDescriptions[index] < 0) {
+            return null;
+        }
+        return new String(mDescriptionBytes[mDescriptions[index]], UTF_8);
+    }
+
+    private int internDescription(String description) {
+        if (description == null) {
+            return -1;
+        }
+        byte[] bytes = description.getBytes(UTF_8);
+        int hash = Arrays.hashCode(bytes);
+        Integer handle = mDescriptionsByHash.get(hash);
+        if (handle != null && Arrays.equals(mDescriptionBytes[handle], bytes)) {
+            mDescriptionRefs[handle]++;
+            return handle;
+        }
+        int slot;
+        if (mFreeDescriptionCount > 0) {
+            slot = mFreeDescriptions[--mFreeDescriptionCount];
+        } else {
+            if (mDescriptionCount == mDescriptionBytes.length) {
+                mDescriptionBytes = Arrays.copyOf(mDescriptionBytes, mDescriptionCount * 2);
+                mDescriptionRefs = Arrays.copyOf(mDescriptionRefs, mDescriptionCount * 2);
+            }
+            slot = mDescriptionCount++;
+        }
+        mDescriptionBytes[slot] = bytes;
+        mDescriptionRefs[slot] = 1;
+        if (handle == null) {
+            mDescriptionsByHash.put(hash, slot);
+        }
+        return slot;
+    }
+
+    private void releaseDescription(int handle) {
+        if (handle < 0 || --mDescriptionRefs[handle] > 0) {
+            return;
+        }
+        Integer hash = Arrays.hashCode(mDescriptionBytes[handle]);
+        Integer mapped = mDescriptionsByHash.get(hash);
+        if (mapped != null && mapped == handle) {
+            mDescriptionsByHash.remove(hash);
+        }
+        mDescriptionBytes[handle] = null;
+        if (mFreeDescriptionCount == mFreeDescriptions.length) {
+            mFreeDescriptions = Arrays.copyOf(mFreeDescriptions, mFreeDescriptionCount * 2);
+        }
+        mFreeDescriptions[mFreeDescriptionCount++] = handle;
+    }
+
+    private String join(int prefix, String name) {
+        String value = mPool.get(prefix);
+        if (value == null) {
+            return name;
+        }
+        return name == null ? value : value.concat(name);
+    }
+
+    private static String prefixOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        int slash = url.lastIndexOf('/');
+        return slash < 0 ? null : url.substring(0, slash + 1);
+    }
+
+    private static String nameOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        int slash = url.lastIndexOf('/');
+        return slash < 0 ? url : url.substring(slash + 1);
+    }
+
+    private void putIndex(long id, int index) {
+        if ((mSize * 2) > mIndexKeys.length) {
+            rehash(mIndexKeys.length * 2);
+        }
+        int mask = mIndexKeys.length - 1;
+        int slot = hash(id) & mask;
+        while (mIndexValues[slot] != 0 && mIndexKeys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        mIndexKeys[slot] = id;
+        mIndexValues[slot] = index + 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = mIndexKeys;
+        int[] values = mIndexValues;
+        mIndexKeys = new long[capacity];
+        mIndexValues = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != 0) {
+                int slot = hash(keys[i]) & mask;
+                while (mIndexValues[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                mIndexKeys[slot] = keys[i];
+                mIndexValues[slot] = values[i];
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mIds.length * 2);
+        mIds = Arrays.copyOf(mIds, newCapacity);
+        mTitles = Arrays.copyOf(mTitles, newCapacity);
+        mStudios = Arrays.copyOf(mStudios, newCapacity);
+        mCategories = Arrays.copyOf(mCategories, newCapacity);
+        mDescriptions = Arrays.copyOf(mDescriptions, newCapacity);
+        mVideoPrefixes = Arrays.copyOf(mVideoPrefixes, newCapacity);
+        mVideoNames = Arrays.copyOf(mVideoNames, newCapacity);
+        mCardPrefixes = Arrays.copyOf(mCardPrefixes, newCapacity);
+        mCardNames = Arrays.copyOf(mCardNames, newCapacity);
+        mBgPrefixes = Arrays.copyOf(mBgPrefixes, newCapacity);
+        mBgNames = Arrays.copyOf(mBgNames, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
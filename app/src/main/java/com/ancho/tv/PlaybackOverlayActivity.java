@@ -20,7 +20,6 @@ import android.media.MediaMetadata;
 import android.media.MediaPlayer;
 import android.media.session.MediaSession;
 import android.media.session.PlaybackState;
-import android.net.Uri;
 import android.os.Bundle;
 import android.view.KeyEvent;
 import android.widget.VideoView;
@@ -149,8 +148,9 @@ public class PlaybackOverlayActivity extends Activity implements
         metadataBuilder.putString(MediaMetadata.METADATA_KEY_ARTIST, movie.getStudio());
 
         Glide.with(this)
-                .load(Uri.parse(movie.getCardImageUrl()))
+                .load(ImageMetrics.url(movie.getCardImageUrl()))
                 .asBitmap()
+                .listener(ImageMetrics.<Bitmap>track(ImageMetrics.SITE_PLAYBACK_METADATA))
                 .into(new SimpleTarget<Bitmap>(500, 500) {
                     @Override
                     public void onResourceReady(Bitmap bitmap, GlideAnimation anim) {
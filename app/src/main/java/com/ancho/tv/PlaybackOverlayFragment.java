@@ -16,8 +16,6 @@ package com.ancho.tv;
 
 import android.app.Activity;
 
-import android.media.MediaMetadataRetriever;
-import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.v17.leanback.widget.AbstractDetailsDescriptionPresenter;
@@ -53,8 +51,6 @@ import com.bumptech.glide.load.resource.drawable.GlideDrawable;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /*
@@ -87,14 +83,24 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
     private SkipNextAction mSkipNextAction;
     private SkipPreviousAction mSkipPreviousAction;
     private PlaybackControlsRow mPlaybackControlsRow;
-    private ArrayList<Movie> mItems = new ArrayList<Movie>();
+    private List<Movie> mItems;
     private int mCurrentItem;
     private Handler mHandler;
     private Runnable mRunnable;
     private Movie mSelectedMovie;
+    private DurationProbe mDurationProbe;
 
     private OnPlayPauseClickedListener mCallback;
 
+    private final DurationProbe.Callback mDurationCallback = new DurationProbe.Callback() {
+        @Override
+        public void onDurationProbed(String videoUrl, int durationMillis) {
+            if (videoUrl.equals(mItems.get(mCurrentItem).getVideoUrl())) {
+                mPlaybackControlsRow.setTotalTime(durationMillis);
+            }
+        }
+    };
+
     // Container Activity must implement this interface
     public interface OnPlayPauseClickedListener {
         void onFragmentPlayPause(Movie movie, int position, Boolean playPause);
@@ -104,20 +110,21 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        mItems = new ArrayList<Movie>();
-        mSelectedMovie = (Movie) getActivity()
-                .getIntent().getSerializableExtra(DetailsActivity.MOVIE);
-
-        List<Movie> movies = MovieList.list;
-
-        for (int j = 0; j < movies.size(); j++) {
-            mItems.add(movies.get(j));
-            if (mSelectedMovie.getTitle().contentEquals(movies.get(j).getTitle())) {
-                mCurrentItem = j;
-            }
+        mSelectedMovie = MovieList.findById(getActivity()
+                .getIntent().getLongExtra(DetailsActivity.MOVIE, -1));
+        if (mSelectedMovie == null) {
+            getActivity().finish();
+            return;
         }
 
+        // Movies are materialized from the compact store as the playlist reaches them. The
+        // playlist is a copy, so a catalog refresh behind playback cannot shift its positions.
+        MovieStore items = MovieList.list.copy();
+        mItems = items;
+        mCurrentItem = Math.max(0, items.indexOfId(mSelectedMovie.getId()));
+
         mHandler = new Handler();
+        mDurationProbe = DurationProbe.getInstance(getActivity());
 
         setBackgroundType(BACKGROUND_TYPE);
         setFadingEnabled(false);
@@ -211,17 +218,14 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
         notifyChanged(mPlayPauseAction);
     }
 
-    private int getDuration() {
-        Movie movie = mItems.get(mCurrentItem);
-        MediaMetadataRetriever mmr = new MediaMetadataRetriever();
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            mmr.setDataSource(movie.getVideoUrl(), new HashMap<String, String>());
-        } else {
-            mmr.setDataSource(movie.getVideoUrl());
-        }
-        String time = mmr.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
-        long duration = Long.parseLong(time);
-        return (int) duration;
+    private void probeDuration() {
+        mPlaybackControlsRow.setTotalTime(0);
+        mDurationProbe.probe(mItems.get(mCurrentItem).getVideoUrl(), mDurationCallback);
+
+        // Warm the neighbours so that skipping through the playlist finds them cached.
+        int size = mItems.size();
+        mDurationProbe.probe(mItems.get((mCurrentItem + 1) % size).getVideoUrl(), null);
+        mDurationProbe.probe(mItems.get((mCurrentItem + size - 1) % size).getVideoUrl(), null);
     }
 
     private void addPlaybackControlsRow() {
@@ -299,7 +303,7 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
             updateVideoImage(mItems.get(mCurrentItem).getCardImageURI().toString());
         }
         mRowsAdapter.notifyArrayItemRangeChanged(0, 1);
-        mPlaybackControlsRow.setTotalTime(getDuration());
+        probeDuration();
         mPlaybackControlsRow.setCurrentTime(0);
         mPlaybackControlsRow.setBufferedProgress(0);
     }
@@ -377,6 +381,15 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
         super.onStop();
     }
 
+    @Override
+    public void onDestroy() {
+        // Null if onCreate finished the activity because the movie was not loaded.
+        if (mDurationProbe != null) {
+            mDurationProbe.cancel(mDurationCallback);
+        }
+        super.onDestroy();
+    }
+
     static class DescriptionPresenter extends AbstractDetailsDescriptionPresenter {
         @Override
         protected void onBindDescription(ViewHolder viewHolder, Object item) {
@@ -387,8 +400,9 @@ public class PlaybackOverlayFragment extends android.support.v17.leanback.app.Pl
 
     protected void updateVideoImage(String uri) {
         Glide.with(getActivity())
-                .load(uri)
+                .load(ImageMetrics.url(uri))
                 .centerCrop()
+                .listener(ImageMetrics.<GlideDrawable>track(ImageMetrics.SITE_PLAYBACK_CONTROLS))
                 .into(new SimpleTarget<GlideDrawable>(CARD_WIDTH, CARD_HEIGHT) {
                     @Override
                     public void onResourceReady(GlideDrawable resource, GlideAnimation<? super GlideDrawable> glideAnimation) {
@@ -0,0 +1,176 @@
+package com.ancho.tv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Computes the operations that turn one version of a row, given as movie ids, into another:
+ * removals of titles that left the row, moves of the titles that are out of order (all but the
+ * longest increasing run of kept titles, so the number of moves is minimal), insertions of new
+ * titles and changes of titles whose content was refreshed. Operations are meant to be applied
+ * in order; every position refers to the row as left by the previous operation.
+ */
+public final class RowDiff {
+
+    public static final class Op {
+        public static final int REMOVE = 0;
+        public static final int MOVE = 1;
+        public static final int INSERT = 2;
+        public static final int CHANGE = 3;
+
+        public final int type;
+        // REMOVE and CHANGE: first position; MOVE: source position; INSERT: target position.
+        public final int position;
+        // MOVE: target position after the source was removed; REMOVE: number of titles.
+        public final int extra;
+        // INSERT and CHANGE: the ids to bind.
+        public final long[] ids;
+
+        private Op(int type, int position, int extra, long[] ids) {
+            this.type = type;
+            this.position = position;
+            this.extra = extra;
+            this.ids = ids;
+        }
+
+        @Override
+        public String toString() {
+            return "Op{type=" + type + ", position=" + position + ", extra=" + extra
+                    + ", ids=" + Arrays.toString(ids) + '}';
+        }
+    }
+
+    private RowDiff() {
+    }
+
+    public static List<Op> compute(long[] oldIds, long[] newIds, long[] changedIds) {
+        List<Op> ops = new ArrayList<Op>();
+        Map<Long, Integer> targets = new HashMap<Long, Integer>(newIds.length * 2);
+        for (int i = 0; i < newIds.length; i++) {
+            targets.put(newIds[i], i);
+        }
+
+        // Removals, back to front and coalesced into ranges.
+        List<Long> current = new ArrayList<Long>(oldIds.length);
+        int runEnd = -1;
+        for (int i = oldIds.length - 1; i >= -1; i--) {
+            boolean removed = i >= 0 && !targets.containsKey(oldIds[i]);
+            if (removed) {
+                if (runEnd < 0) {
+                    runEnd = i;
+                }
+            } else if (runEnd >= 0) {
+                ops.add(new Op(Op.REMOVE, i + 1, runEnd - i, null));
+                runEnd = -1;
+            }
+        }
+        Set<Long> kept = new HashSet<Long>();
+        for (long id : oldIds) {
+            if (targets.containsKey(id) && kept.add(id)) {
+                current.add(id);
+            }
+        }
+
+        // Titles outside the longest increasing run of target positions are moved, in target
+        // order, right behind the kept title that precedes them in the new row.
+        int[] positions = new int[current.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = targets.get(current.get(i));
+        }
+        boolean[] stable = longestIncreasingRun(positions);
+        List<Long> unstable = new ArrayList<Long>();
+        for (int i = 0; i < stable.length; i++) {
+            if (!stable[i]) {
+                unstable.add(current.get(i));
+            }
+        }
+        sortByTarget(unstable, targets);
+        for (Long id : unstable) {
+            int from = current.indexOf(id);
+            current.remove(from);
+            int to = 0;
+            for (int t = targets.get(id) - 1; t >= 0; t--) {
+                int predecessor = kept.contains(newIds[t]) ? current.indexOf(newIds[t]) : -1;
+                if (predecessor >= 0) {
+                    to = predecessor + 1;
+                    break;
+                }
+            }
+            current.add(to, id);
+            if (from != to) {
+                ops.add(new Op(Op.MOVE, from, to, null));
+            }
+        }
+
+        // Insertions, front to back and coalesced into ranges.
+        int i = 0;
+        while (i < newIds.length) {
+            if (i < current.size() && current.get(i) == newIds[i]) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < newIds.length && !kept.contains(newIds[i])) {
+                current.add(i, newIds[i]);
+                i++;
+            }
+            ops.add(new Op(Op.INSERT, start, 0, Arrays.copyOfRange(newIds, start, i)));
+        }
+
+        for (long id : changedIds) {
+            Integer target = targets.get(id);
+            if (target != null && kept.contains(id)) {
+                ops.add(new Op(Op.CHANGE, target, 0, new long[] {id}));
+            }
+        }
+        return ops;
+    }
+
+    private static void sortByTarget(List<Long> ids, final Map<Long, Integer> targets) {
+        Collections.sort(ids, new Comparator<Long>() {
+            @Override
+            public int compare(Long a, Long b) {
+                return targets.get(a) - targets.get(b);
+            }
+        });
+    }
+
+    /**
+     * Marks one longest strictly increasing subsequence of values.
+     */
+    private static boolean[] longestIncreasingRun(int[] values) {
+        int n = values.length;
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] marked = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            marked[i] = true;
+        }
+        return marked;
+    }
+}
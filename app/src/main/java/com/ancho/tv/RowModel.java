@@ -0,0 +1,34 @@
+package com.ancho.tv;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Immutable list of the browse rows a page of the catalog touches, one row per category in the
+ * order the categories first appear. The titles of a row are looked up in MovieList.categories,
+ * so the model does not hold them. Models are compiled on the catalog loader thread.
+ */
+public final class RowModel {
+    private final String[] mCategories;
+
+    private RowModel(String[] categories) {
+        mCategories = categories;
+    }
+
+    public static RowModel compile(List<Movie> page) {
+        Set<String> categories = new LinkedHashSet<String>();
+        for (int j = 0; j < page.size(); j++) {
+            categories.add(page.get(j).getCategory());
+        }
+        return new RowModel(categories.toArray(new String[categories.size()]));
+    }
+
+    public int getRowCount() {
+        return mCategories.length;
+    }
+
+    public String getCategory(int row) {
+        return mCategories[row];
+    }
+}
@@ -0,0 +1,212 @@
+package com.ancho.tv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v17.leanback.widget.ArrayObjectAdapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Keeps the adapter of a browse row in sync with the ids MovieList.categories holds for its
+ * category. The RowDiff is computed on a background thread and applied as the minimal set of
+ * adapter operations, so a catalog refresh never rebinds the whole row or steals focus.
+ *
+ * A row starts out empty and is only filled once it is materialized, when it comes close to the
+ * screen. Evicting empties it again until it is materialized the next time.
+ */
+public class RowUpdater {
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayObjectAdapter mAdapter;
+    private final String mCategory;
+    private final Set<Long> mChanged = new HashSet<Long>();
+    private boolean mRunning;
+    private boolean mDirty;
+    private boolean mReleased;
+    private boolean mMaterialized;
+    private boolean mBound;
+    // Incremented on eviction, so a diff computed for the old contents is dropped.
+    private int mGeneration;
+
+    public RowUpdater(ArrayObjectAdapter adapter, String category) {
+        mAdapter = adapter;
+        mCategory = category;
+    }
+
+    public ArrayObjectAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Returns true if the row is materialized but does not hold as many titles as its category.
+     */
+    public boolean isOutOfSync() {
+        return mMaterialized && mAdapter.size() != MovieList.categories.size(mCategory);
+    }
+
+    public boolean isMaterialized() {
+        return mMaterialized;
+    }
+
+    /**
+     * Fills the row from its category unless it is already filled.
+     */
+    public void materialize() {
+        if (!mMaterialized) {
+            mMaterialized = true;
+            update(Collections.<Long>emptyList());
+        }
+    }
+
+    /**
+     * Empties the row to free its titles, unless it is on screen. Returns true if it was emptied.
+     */
+    public boolean evict() {
+        if (!mMaterialized || mBound) {
+            return false;
+        }
+        mMaterialized = false;
+        mGeneration++;
+        mDirty = false;
+        mChanged.clear();
+        mAdapter.clear();
+        return true;
+    }
+
+    /**
+     * Tells whether the row's view is currently bound, which protects it from eviction.
+     */
+    public void setBound(boolean bound) {
+        mBound = bound;
+    }
+
+    /**
+     * Schedules a diff of the row against its category. changedIds are titles whose content was
+     * refreshed and have to be rebound if they are in the row. Does nothing until the row is
+     * materialized. Must be called on the main thread.
+     */
+    public void update(Collection<Long> changedIds) {
+        if (!mMaterialized) {
+            return;
+        }
+        mChanged.addAll(changedIds);
+        if (mRunning) {
+            mDirty = true;
+            return;
+        }
+        start();
+    }
+
+    /**
+     * Drops pending diffs, e.g. when the row goes away with its fragment.
+     */
+    public void release() {
+        mReleased = true;
+    }
+
+    private void start() {
+        final long[] oldIds = new long[mAdapter.size()];
+        for (int i = 0; i < oldIds.length; i++) {
+            oldIds[i] = ((Movie) mAdapter.get(i)).getId();
+        }
+        final long[] newIds = MovieList.categories.getIds(mCategory);
+        final long[] changedIds = new long[mChanged.size()];
+        int i = 0;
+        for (Long id : mChanged) {
+            changedIds[i++] = id;
+        }
+        mChanged.clear();
+        mRunning = true;
+        final int generation = mGeneration;
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, changedIds);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mRunning = false;
+                        if (mReleased) {
+                            return;
+                        }
+                        if (generation != mGeneration) {
+                            // Evicted meanwhile; start over if it has been materialized again.
+                            if (mMaterialized) {
+                                restart(changedIds);
+                            }
+                            return;
+                        }
+                        if (!canApply(ops)) {
+                            // Titles of the diff left the catalog meanwhile; diff again.
+                            restart(changedIds);
+                            return;
+                        }
+                        apply(ops);
+                        if (mDirty) {
+                            mDirty = false;
+                            start();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Diffs again after a result was dropped, keeping the titles it would have rebound.
+     */
+    private void restart(long[] changedIds) {
+        for (long id : changedIds) {
+            mChanged.add(id);
+        }
+        mDirty = false;
+        start();
+    }
+
+    private static boolean canApply(List<RowDiff.Op> ops) {
+        for (RowDiff.Op op : ops) {
+            if (op.type == RowDiff.Op.INSERT || op.type == RowDiff.Op.CHANGE) {
+                for (long id : op.ids) {
+                    if (MovieList.list.indexOfId(id) < 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void apply(List<RowDiff.Op> ops) {
+        for (RowDiff.Op op : ops) {
+            switch (op.type) {
+                case RowDiff.Op.REMOVE:
+                    mAdapter.removeItems(op.position, op.extra);
+                    break;
+                case RowDiff.Op.MOVE:
+                    Object item = mAdapter.get(op.position);
+                    mAdapter.removeItems(op.position, 1);
+                    mAdapter.add(op.extra, item);
+                    break;
+                case RowDiff.Op.INSERT:
+                    List<Movie> movies = new ArrayList<Movie>(op.ids.length);
+                    for (long id : op.ids) {
+                        movies.add(MovieList.findById(id));
+                    }
+                    mAdapter.addAll(op.position, movies);
+                    break;
+                case RowDiff.Op.CHANGE:
+                    mAdapter.replace(op.position, MovieList.findById(op.ids[0]));
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ancho.tv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * In-memory stand-in for the catalog backend. It serves the bundled sample titles over and over
+ * until the requested catalog size is reached.
+ */
+public class SampleCatalogSource implements CatalogSource {
+    private static final String CATEGORY[] = {
+            "主页",
+            "category",
+            "category",
+            "category",
+            "category"
+    };
+
+    private static final String TITLE[] = {
+            "Zeitgeist 2010_ Year in Review",
+            "Google Demo Slam_ 20ft Search",
+            "Introducing Gmail Blue",
+            "Introducing Google Fiber to the Pole",
+            "Introducing Google Nose"
+    };
+
+    private static final String DESCRIPTION = "Fusce id nisi turpis. Praesent viverra bibendum semper. "
+            + "Donec tristique, orci sed semper lacinia, quam erat rhoncus massa, non congue tellus est "
+            + "quis tellus. Sed mollis orci venenatis quam scelerisque accumsan. Curabitur a massa sit "
+            + "amet mi accumsan mollis sed et magna. Vivamus sed aliquam risus. Nulla eget dolor in elit "
+            + "facilisis mattis. Ut aliquet luctus lacus. Phasellus nec commodo erat. Praesent tempus id "
+            + "lectus ac scelerisque. Maecenas pretium cursus lectus id volutpat.";
+
+    private static final String STUDIO[] = {
+            "Studio Zero",
+            "Studio One",
+            "Studio Two",
+            "Studio Three",
+            "Studio Four"
+    };
+
+    private static final String VIDEO_URL[] = {
+            "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
+            "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
+            "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
+            "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4",
+            "http://s.bemetoy.com/dance/bd/bd494888fc3d058488c448d10e93a7d8.mp4"
+    };
+
+    private static final String BG_IMAGE_URL[] = {
+            "drawable://" + R.drawable.bm_global_bg,
+            "drawable://" + R.drawable.bm_global_bg,
+            "drawable://" + R.drawable.bm_global_bg,
+            "drawable://" + R.drawable.bm_global_bg,
+            "drawable://" + R.drawable.bm_global_bg,
+    };
+
+    private static final String CARD_IMAGE_URL[] = {
+            "http://s.bemetoy.com/img/0d/0d2f581494cccfd310760ea98dd344b0.png",
+            "http://s.bemetoy.com/img/c8/c82d575937b5c6ffbbcd8efa3d0657df.png",
+            "http://s.bemetoy.com/img/22/22494560fe87faab91ef70d2abdebf39.png",
+            "http://s.bemetoy.com/img/c8/c82d575937b5c6ffbbcd8efa3d0657df.png",
+            "http://s.bemetoy.com/img/22/22494560fe87faab91ef70d2abdebf39.png"
+    };
+
+    private final int mSize;
+
+    public SampleCatalogSource(int size) {
+        mSize = size;
+    }
+
+    @Override
+    public List<Movie> loadPage(int offset, int limit) {
+        int end = Math.min(mSize, offset + limit);
+        List<Movie> page = new ArrayList<Movie>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            int j = i % TITLE.length;
+            page.add(MovieList.buildMovieInfo("sample:" + i, CATEGORY[j], TITLE[j], DESCRIPTION,
+                    STUDIO[j], VIDEO_URL[j], CARD_IMAGE_URL[j], BG_IMAGE_URL[j]));
+        }
+        return page;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,24 @@
+package com.ancho.tv;
+
+import android.app.Activity;
+import android.os.Bundle;
+
+/*
+ * Hosts the VideoSearchFragment opened from the browse screen's search affordance.
+ */
+public class SearchActivity extends Activity {
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+    }
+
+    @Override
+    public boolean onSearchRequested() {
+        // Restart the search when the remote's search key is pressed again.
+        startActivity(getIntent());
+        finish();
+        return true;
+    }
+}
@@ -0,0 +1,558 @@
+package com.ancho.tv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/*
+ * In-memory inverted index over movie titles, studios and descriptions. Latin text is split into
+ * lowercase words, CJK text into single characters and character pairs, so "主页" is found by
+ * either character or both. Latin query words match as prefixes, and a word without any match is
+ * retried with up to one or two typos. Movies are added incrementally as catalog pages arrive;
+ * indexing a known id again replaces its old entry. Replaced and removed entries are skipped
+ * until they make up a quarter of the index, which is then compacted. All methods are
+ * thread-safe.
+ *
+ * Queries are evaluated word by word. The matches after each word of the last query are kept, so
+ * a keystroke only walks the postings of the words that changed, and recent results are cached.
+ * When a keystroke extends the last word, the matches of the shorter word are narrowed through
+ * the terms every movie keeps, without walking any postings.
+ */
+public final class SearchIndex {
+    private static final int TITLE_WEIGHT = 8;
+    private static final int STUDIO_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Caps the postings a single long description can add.
+    private static final int MAX_DESCRIPTION_TOKENS = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    // Shorter words are too ambiguous to correct.
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int LONG_WORD_LENGTH = 6;
+    private static final int RESULT_CACHE_SIZE = 64;
+    // Compact once this many entries, and at least a quarter of all, are deleted.
+    private static final int MIN_COMPACT_DELETED = 32;
+
+    private final TreeMap<String, Postings> mTerms = new TreeMap<String, Postings>();
+    private final Map<Long, Integer> mDocsById = new HashMap<Long, Integer>();
+    private final BitSet mDeleted = new BitSet();
+    private int mDeletedCount;
+    private long[] mDocIds = new long[INITIAL_CAPACITY];
+    // Terms of every document and their weights, for narrowing matches of a longer word.
+    private Postings[][] mDocTerms = new Postings[INITIAL_CAPACITY][];
+    private int[][] mDocWeights = new int[INITIAL_CAPACITY][];
+    private int mDocCount;
+
+    // Per-query scratch space, indexed by document.
+    private int[] mScores = new int[INITIAL_CAPACITY];
+    private int[] mMatched = new int[INITIAL_CAPACITY];
+
+    // Words of the last query and the movies matching each leading run of them. Both are
+    // dropped, together with the result cache, whenever the index changes.
+    private List<String> mLastTokens = Collections.emptyList();
+    private final List<Match> mLastMatches = new ArrayList<Match>();
+    private final Map<String, long[]> mResultCache =
+            new LinkedHashMap<String, long[]>(RESULT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                    return size() > RESULT_CACHE_SIZE;
+                }
+            };
+
+    public synchronized void add(List<Movie> movies) {
+        for (int i = 0; i < movies.size(); i++) {
+            add(movies.get(i));
+        }
+    }
+
+    public synchronized void add(Movie movie) {
+        invalidateQueries();
+        Integer previous = mDocsById.get(movie.getId());
+        if (previous != null) {
+            delete(previous);
+        }
+        int doc = mDocCount++;
+        if (doc == mDocIds.length) {
+            mDocIds = Arrays.copyOf(mDocIds, doc * 2);
+            mDocTerms = Arrays.copyOf(mDocTerms, doc * 2);
+            mDocWeights = Arrays.copyOf(mDocWeights, doc * 2);
+            mScores = new int[doc * 2];
+            mMatched = new int[doc * 2];
+        }
+        mDocIds[doc] = movie.getId();
+        mDocsById.put(movie.getId(), doc);
+
+        Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+        addTerms(weights, tokenize(movie.getTitle(), Integer.MAX_VALUE), TITLE_WEIGHT);
+        addTerms(weights, tokenize(movie.getStudio(), Integer.MAX_VALUE), STUDIO_WEIGHT);
+        addTerms(weights, tokenize(movie.getDescription(), MAX_DESCRIPTION_TOKENS),
+                DESCRIPTION_WEIGHT);
+        Postings[] docTerms = new Postings[weights.size()];
+        int[] docWeights = new int[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Postings postings = mTerms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings(entry.getKey());
+                mTerms.put(entry.getKey(), postings);
+            }
+            postings.add(doc, entry.getValue());
+            docTerms[i] = postings;
+            docWeights[i] = entry.getValue();
+            i++;
+        }
+        mDocTerms[doc] = docTerms;
+        mDocWeights[doc] = docWeights;
+    }
+
+    /**
+     * Drops the movie with the given id from the results.
+     */
+    public synchronized void remove(long id) {
+        Integer doc = mDocsById.remove(id);
+        if (doc != null) {
+            invalidateQueries();
+            delete(doc);
+        }
+    }
+
+    public synchronized void clear() {
+        invalidateQueries();
+        mTerms.clear();
+        mDocsById.clear();
+        mDeleted.clear();
+        mDeletedCount = 0;
+        Arrays.fill(mDocTerms, 0, mDocCount, null);
+        Arrays.fill(mDocWeights, 0, mDocCount, null);
+        mDocCount = 0;
+    }
+
+    private void delete(int doc) {
+        mDeleted.set(doc);
+        mDeletedCount++;
+        if (mDeletedCount >= MIN_COMPACT_DELETED && mDeletedCount * 4 >= mDocCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live entries and drops the postings of deleted ones, and terms left without
+     * postings.
+     */
+    private void compact() {
+        int[] remap = new int[mDocCount];
+        int live = 0;
+        for (int doc = 0; doc < mDocCount; doc++) {
+            if (mDeleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                mDocIds[live] = mDocIds[doc];
+                mDocTerms[live] = mDocTerms[doc];
+                mDocWeights[live] = mDocWeights[doc];
+                remap[doc] = live++;
+            }
+        }
+        Arrays.fill(mDocTerms, live, mDocCount, null);
+        Arrays.fill(mDocWeights, live, mDocCount, null);
+        Iterator<Postings> terms = mTerms.values().iterator();
+        while (terms.hasNext()) {
+            Postings postings = terms.next();
+            postings.remap(remap);
+            if (postings.mSize == 0) {
+                terms.remove();
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : mDocsById.entrySet()) {
+            entry.setValue(remap[entry.getValue()]);
+        }
+        mDeleted.clear();
+        mDeletedCount = 0;
+        mDocCount = live;
+    }
+
+    /**
+     * Returns the ids of the best matching movies, best first. Every word of the query has to
+     * match.
+     */
+    public synchronized long[] search(String query, int limit) {
+        List<String> tokens = dedupe(tokenize(query, Integer.MAX_VALUE));
+        if (tokens.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        String cacheKey = limit + ":" + tokens;
+        long[] ids = mResultCache.get(cacheKey);
+        if (ids != null) {
+            return ids.clone();
+        }
+
+        // Start from the longest run of leading words shared with the last query.
+        int shared = 0;
+        while (shared < tokens.size() && shared < mLastTokens.size()
+                && tokens.get(shared).equals(mLastTokens.get(shared))) {
+            shared++;
+        }
+        // If only the last word changed and it grew, narrow its earlier matches.
+        Match extended = null;
+        if (shared == tokens.size() - 1 && shared < mLastMatches.size()) {
+            extended = extend(mLastMatches.get(shared), mLastTokens.get(shared),
+                    tokens.get(shared));
+        }
+        while (mLastMatches.size() > shared) {
+            mLastMatches.remove(mLastMatches.size() - 1);
+        }
+        Match match = shared > 0 ? mLastMatches.get(shared - 1) : null;
+        if (extended != null) {
+            match = extended;
+            mLastMatches.add(match);
+        }
+        for (int k = mLastMatches.size(); k < tokens.size(); k++) {
+            match = match(tokens.get(k), match);
+            mLastMatches.add(match);
+        }
+        mLastTokens = tokens;
+
+        ids = top(match, limit);
+        mResultCache.put(cacheKey, ids);
+        return ids.clone();
+    }
+
+    private void invalidateQueries() {
+        mLastTokens = Collections.emptyList();
+        mLastMatches.clear();
+        mResultCache.clear();
+    }
+
+    /**
+     * Narrows previous, the matches of a word, to the matches of token, a longer word starting
+     * with it, using the terms of each matching movie. Returns null if that does not apply, e.g.
+     * because the word was corrected, or if token has to be corrected instead.
+     */
+    private Match extend(Match previous, String word, String token) {
+        if (previous.mFuzzy || token.length() <= word.length() || !token.startsWith(word)
+                || isCjk(word.codePointAt(0))) {
+            return null;
+        }
+        Match result = new Match();
+        for (int i = 0; i < previous.mSize; i++) {
+            int doc = previous.mDocs[i];
+            Postings[] terms = mDocTerms[doc];
+            int tokenScore = 0;
+            for (int j = 0; j < terms.length; j++) {
+                if (terms[j].mTerm.startsWith(token)) {
+                    tokenScore += mDocWeights[doc][j];
+                }
+            }
+            if (tokenScore > 0) {
+                result.add(doc, previous.mScores[i] - previous.mTokenScores[i] + tokenScore,
+                        tokenScore);
+            }
+        }
+        if (result.mSize == 0) {
+            // Without any term starting with token, match() has to try corrections.
+            String next = mTerms.ceilingKey(token);
+            if (next == null || !next.startsWith(token)) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Narrows base, or the whole index if base is null, to the movies matching token and adds
+     * the weight of the match to their scores.
+     */
+    private Match match(String token, Match base) {
+        if (base != null && base.mSize == 0) {
+            return base;
+        }
+        List<Postings> terms = new ArrayList<Postings>();
+        boolean cjk = isCjk(token.codePointAt(0));
+        if (cjk) {
+            Postings postings = mTerms.get(token);
+            if (postings != null) {
+                terms.add(postings);
+            }
+        } else {
+            terms.addAll(mTerms.subMap(token, token + Character.MAX_VALUE).values());
+        }
+        int divisor = 1;
+        if (terms.isEmpty() && !cjk && token.length() >= MIN_FUZZY_LENGTH) {
+            // Corrected words count half as much as exact ones.
+            terms = fuzzyTerms(token);
+            divisor = 2;
+        }
+
+        Match result = new Match();
+        result.mFuzzy = divisor > 1;
+        if (base != null) {
+            for (int i = 0; i < base.mSize; i++) {
+                mMatched[base.mDocs[i]] = 1;
+            }
+        }
+        int required = base != null ? 1 : 0;
+        for (Postings postings : terms) {
+            for (int i = 0; i < postings.mSize; i++) {
+                int doc = postings.mDocs[i];
+                if (mMatched[doc] == required) {
+                    mMatched[doc] = 2;
+                    mScores[doc] = 0;
+                    if (base == null) {
+                        result.add(doc, 0, 0);
+                    }
+                }
+                if (mMatched[doc] == 2) {
+                    mScores[doc] += Math.max(1, postings.mWeights[i] / divisor);
+                }
+            }
+        }
+        if (base != null) {
+            for (int i = 0; i < base.mSize; i++) {
+                int doc = base.mDocs[i];
+                if (mMatched[doc] == 2) {
+                    result.add(doc, base.mScores[i] + mScores[doc], mScores[doc]);
+                }
+                mMatched[doc] = 0;
+            }
+        } else {
+            for (int i = 0; i < result.mSize; i++) {
+                int doc = result.mDocs[i];
+                result.mScores[i] = mScores[doc];
+                result.mTokenScores[i] = mScores[doc];
+                mMatched[doc] = 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the postings of every latin term starting with a word within one typo of token,
+     * or two for long words. Swapped neighbouring letters count as one typo. Only terms starting
+     * with the first or second letter of token are considered, which keeps the scan short.
+     */
+    private List<Postings> fuzzyTerms(String token) {
+        int maxEdits = token.length() >= LONG_WORD_LENGTH ? 2 : 1;
+        List<Postings> terms = new ArrayList<Postings>();
+        addFuzzyTerms(terms, token, token.substring(0, 1), maxEdits);
+        if (token.charAt(1) != token.charAt(0)) {
+            addFuzzyTerms(terms, token, token.substring(1, 2), maxEdits);
+        }
+        return terms;
+    }
+
+    private void addFuzzyTerms(List<Postings> terms, String token, String first, int maxEdits) {
+        for (Map.Entry<String, Postings> entry
+                : mTerms.subMap(first, first + Character.MAX_VALUE).entrySet()) {
+            String term = entry.getKey();
+            if (term.length() >= token.length() - maxEdits
+                    && prefixDistance(token, term, maxEdits) <= maxEdits) {
+                terms.add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest edit distance between query and any prefix of term, or max + 1 once
+     * it is known to exceed max.
+     */
+    static int prefixDistance(String query, String term, int max) {
+        int n = query.length();
+        int m = Math.min(term.length(), n + max);
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char t = term.charAt(j - 1);
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + (q == t ? 0 : 1));
+                if (i > 1 && j > 1 && q == term.charAt(j - 2) && query.charAt(i - 2) == t) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        int distance = max + 1;
+        for (int j = 0; j <= m; j++) {
+            distance = Math.min(distance, previous[j]);
+        }
+        return distance;
+    }
+
+    private long[] top(Match match, int limit) {
+        final Match candidates = match;
+        PriorityQueue<Integer> best = new PriorityQueue<Integer>(limit,
+                new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer a, Integer b) {
+                        // Worst first, so the head is the one to evict; later docs lose ties.
+                        int scoreA = candidates.mScores[a];
+                        int scoreB = candidates.mScores[b];
+                        if (scoreA != scoreB) {
+                            return scoreA < scoreB ? -1 : 1;
+                        }
+                        return candidates.mDocs[a] < candidates.mDocs[b] ? 1 : -1;
+                    }
+                });
+        for (int i = 0; i < candidates.mSize; i++) {
+            if (!mDeleted.get(candidates.mDocs[i])) {
+                best.add(i);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        long[] ids = new long[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = mDocIds[candidates.mDocs[best.poll()]];
+        }
+        return ids;
+    }
+
+    private static List<String> dedupe(List<String> tokens) {
+        return new ArrayList<String>(new LinkedHashSet<String>(tokens));
+    }
+
+    private static void addTerms(Map<String, Integer> weights, List<String> terms, int weight) {
+        for (String term : terms) {
+            Integer current = weights.get(term);
+            weights.put(term, current == null ? weight : current + weight);
+        }
+    }
+
+    /**
+     * Splits text into lowercase latin words and CJK unigrams and bigrams, stopping after max
+     * tokens. Used for both documents and queries.
+     */
+    static List<String> tokenize(String text, int max) {
+        List<String> tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        for (int i = 0; i < text.length() && tokens.size() < max; ) {
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+            if (isCjk(c)) {
+                flush(word, tokens);
+                tokens.add(new String(Character.toChars(c)));
+                if (previousCjk >= 0) {
+                    tokens.add(new String(Character.toChars(previousCjk))
+                            + new String(Character.toChars(c)));
+                }
+                previousCjk = c;
+            } else if (Character.isLetterOrDigit(c)) {
+                word.appendCodePoint(Character.toLowerCase(c));
+                previousCjk = -1;
+            } else {
+                flush(word, tokens);
+                previousCjk = -1;
+            }
+        }
+        if (tokens.size() < max) {
+            flush(word, tokens);
+        }
+        return tokens;
+    }
+
+    private static void flush(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    static boolean isCjk(int c) {
+        return (c >= 0x3040 && c <= 0x30ff)      // Hiragana, Katakana
+                || (c >= 0x3400 && c <= 0x4dbf)  // CJK Extension A
+                || (c >= 0x4e00 && c <= 0x9fff)  // CJK Unified Ideographs
+                || (c >= 0xac00 && c <= 0xd7af)  // Hangul Syllables
+                || (c >= 0xf900 && c <= 0xfaff)  // CJK Compatibility Ideographs
+                || (c >= 0x20000 && c <= 0x2ffff);
+    }
+
+    private static final class Postings {
+        final String mTerm;
+        int[] mDocs = new int[4];
+        int[] mWeights = new int[4];
+        int mSize;
+
+        Postings(String term) {
+            mTerm = term;
+        }
+
+        void add(int doc, int weight) {
+            if (mSize == mDocs.length) {
+                mDocs = Arrays.copyOf(mDocs, mSize * 2);
+                mWeights = Arrays.copyOf(mWeights, mSize * 2);
+            }
+            mDocs[mSize] = doc;
+            mWeights[mSize] = weight;
+            mSize++;
+        }
+
+        /**
+         * Renumbers the docs through remap, dropping those mapped to -1.
+         */
+        void remap(int[] remap) {
+            int size = 0;
+            for (int i = 0; i < mSize; i++) {
+                int doc = remap[mDocs[i]];
+                if (doc >= 0) {
+                    mDocs[size] = doc;
+                    mWeights[size] = mWeights[i];
+                    size++;
+                }
+            }
+            mSize = size;
+        }
+    }
+
+    /*
+     * Movies matching a run of query words, with their accumulated scores and the part of the
+     * scores that comes from the last word.
+     */
+    private static final class Match {
+        int[] mDocs = new int[16];
+        int[] mScores = new int[16];
+        int[] mTokenScores = new int[16];
+        int mSize;
+        // The last word only matched after correcting it.
+        boolean mFuzzy;
+
+        void add(int doc, int score, int tokenScore) {
+            if (mSize == mDocs.length) {
+                mDocs = Arrays.copyOf(mDocs, mSize * 2);
+                mScores = Arrays.copyOf(mScores, mSize * 2);
+                mTokenScores = Arrays.copyOf(mTokenScores, mSize * 2);
+            }
+            mDocs[mSize] = doc;
+            mScores[mSize] = score;
+            mTokenScores[mSize] = tokenScore;
+            mSize++;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ancho.tv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v17.leanback.widget.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Coalesces the selection changes of a browse screen, which arrive on every D-pad step, into
+ * two kinds of events. Passing listeners see the latest selection at most once per interval
+ * while focus is moving, including the one it stops on. Settled listeners only see a selection
+ * once focus has rested on it for their dwell time, so holding a direction key never reaches
+ * them. Main thread only.
+ */
+public class SelectionBus {
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Subscription> mSubscriptions = new ArrayList<Subscription>();
+    private Object mItem;
+    private Row mRow;
+
+    /*
+     * Receives a selection on the main thread. item is null when an empty row is selected.
+     */
+    public interface Listener {
+        void onSelected(Object item, Row row);
+    }
+
+    /**
+     * Delivers selections to listener while focus is moving, no more often than every
+     * intervalMillis. An interval of 0 delivers every selection.
+     */
+    public void addPassingListener(Listener listener, int intervalMillis) {
+        mSubscriptions.add(new Subscription(listener, intervalMillis, false));
+    }
+
+    /**
+     * Delivers a selection to listener once it has not changed for dwellMillis.
+     */
+    public void addSettledListener(Listener listener, int dwellMillis) {
+        mSubscriptions.add(new Subscription(listener, dwellMillis, true));
+    }
+
+    /**
+     * Called for every selection change.
+     */
+    public void post(Object item, Row row) {
+        mItem = item;
+        mRow = row;
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < mSubscriptions.size(); i++) {
+            Subscription subscription = mSubscriptions.get(i);
+            if (subscription.mSettled) {
+                mHandler.removeCallbacks(subscription);
+                mHandler.postDelayed(subscription, subscription.mMillis);
+            } else if (!subscription.mScheduled) {
+                long wait = subscription.mLastDelivery + subscription.mMillis - now;
+                if (wait <= 0) {
+                    subscription.run();
+                } else {
+                    // Deliver whatever is selected by the end of the interval.
+                    subscription.mScheduled = true;
+                    mHandler.postDelayed(subscription, wait);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all pending events.
+     */
+    public void release() {
+        mHandler.removeCallbacksAndMessages(null);
+        for (int i = 0; i < mSubscriptions.size(); i++) {
+            mSubscriptions.get(i).mScheduled = false;
+        }
+        mItem = null;
+        mRow = null;
+    }
+
+    private final class Subscription implements Runnable {
+        final Listener mListener;
+        final int mMillis;
+        final boolean mSettled;
+        long mLastDelivery = Long.MIN_VALUE / 2;
+        boolean mScheduled;
+
+        Subscription(Listener listener, int millis, boolean settled) {
+            mListener = listener;
+            mMillis = millis;
+            mSettled = settled;
+        }
+
+        @Override
+        public void run() {
+            mScheduled = false;
+            mLastDelivery = SystemClock.uptimeMillis();
+            mListener.onSelected(mItem, mRow);
+        }
+    }
+}
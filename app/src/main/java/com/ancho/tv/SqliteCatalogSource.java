@@ -0,0 +1,68 @@
+package com.ancho.tv;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Pages through a "movies" table of a local SQLite database in rowid order.
+ */
+public class SqliteCatalogSource implements CatalogSource {
+    private static final String TABLE = "movies";
+    private static final String[] COLUMNS = {
+            "rowid",
+            "category",
+            "title",
+            "description",
+            "studio",
+            "video_url",
+            "card_image_url",
+            "bg_image_url"
+    };
+
+    private final String mPath;
+    private SQLiteDatabase mDatabase;
+
+    public SqliteCatalogSource(String path) {
+        mPath = path;
+    }
+
+    @Override
+    public synchronized List<Movie> loadPage(int offset, int limit) throws IOException {
+        Cursor cursor;
+        try {
+            if (mDatabase == null) {
+                mDatabase = SQLiteDatabase.openDatabase(mPath, null, SQLiteDatabase.OPEN_READONLY);
+            }
+            cursor = mDatabase.query(TABLE, COLUMNS, null, null, null, null, "rowid",
+                    offset + "," + limit);
+        } catch (SQLiteException e) {
+            throw new IOException("Unable to query " + mPath, e);
+        }
+
+        List<Movie> page = new ArrayList<Movie>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                page.add(MovieList.buildMovieInfo(mPath + ":" + cursor.getLong(0),
+                        cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                        cursor.getString(4), cursor.getString(5), cursor.getString(6),
+                        cursor.getString(7)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mDatabase != null) {
+            mDatabase.close();
+            mDatabase = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ancho.tv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Interns strings that repeat across the catalog (studios, categories, url prefixes) and hands
+ * out small int handles for them, so each distinct value is kept in memory exactly once.
+ */
+final class StringPool {
+    private final Map<String, Integer> mHandles = new HashMap<String, Integer>();
+    private final List<String> mValues = new ArrayList<String>();
+
+    /**
+     * Returns the handle of the value, adding it to the pool if needed. null maps to -1.
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer handle = mHandles.get(value);
+        if (handle == null) {
+            handle = mValues.size();
+            mValues.add(value);
+            mHandles.put(value, handle);
+        }
+        return handle;
+    }
+
+    public String get(int handle) {
+        return handle < 0 ? null : mValues.get(handle);
+    }
+
+    public StringPool copy() {
+        StringPool copy = new StringPool();
+        copy.mHandles.putAll(mHandles);
+        copy.mValues.addAll(mValues);
+        return copy;
+    }
+
+    public int size() {
+        return mValues.size();
+    }
+
+    public void clear() {
+        mHandles.clear();
+        mValues.clear();
+    }
+}
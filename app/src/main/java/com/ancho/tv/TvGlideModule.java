@@ -0,0 +1,67 @@
+package com.ancho.tv;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.module.GlideModule;
+
+import java.io.InputStream;
+
+/*
+ * Sizes Glide's caches from the memory class of the device instead of the library defaults, so
+ * browsing large card grids stays within a predictable budget on low-RAM TV sticks. Card art is
+ * opaque, so bitmaps are decoded as RGB_565. Also teaches Glide the app's local image schemes.
+ * Registered in the manifest.
+ */
+public class TvGlideModule implements GlideModule {
+    private static final String TAG = "TvGlideModule";
+    private static final String DISK_CACHE_DIR = "image_cache";
+    private static final int MB = 1024 * 1024;
+    private static final int DISK_CACHE_SIZE = 100 * MB;
+    private static final int LOW_RAM_DISK_CACHE_SIZE = 40 * MB;
+
+    private static CountingMemoryCache sMemoryCache;
+
+    /**
+     * Returns the memory cache Glide uses, or null before Glide has been initialized.
+     */
+    public static CountingMemoryCache getMemoryCache() {
+        return sMemoryCache;
+    }
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && am.isLowRamDevice();
+        // A quarter of the heap on low-RAM devices, a third elsewhere; two fifths of it hold
+        // decoded images ready to draw, the rest recycles bitmaps for decoding.
+        int budget = am.getMemoryClass() * MB / (lowRam ? 4 : 3);
+        int memoryCacheSize = budget * 2 / 5;
+        int bitmapPoolSize = budget - memoryCacheSize;
+        int diskCacheSize = lowRam ? LOW_RAM_DISK_CACHE_SIZE : DISK_CACHE_SIZE;
+
+        sMemoryCache = new CountingMemoryCache(memoryCacheSize);
+        builder.setMemoryCache(sMemoryCache)
+                .setBitmapPool(new LruBitmapPool(bitmapPoolSize))
+                .setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR,
+                        diskCacheSize))
+                .setDecodeFormat(DecodeFormat.PREFER_RGB_565);
+        Log.i(TAG, "Memory cache " + memoryCacheSize / 1024 + "KB, bitmap pool "
+                + bitmapPoolSize / 1024 + "KB, disk cache " + diskCacheSize / MB + "MB"
+                + (lowRam ? " (low RAM)" : ""));
+    }
+
+    @Override
+    public void registerComponents(Context context, Glide glide) {
+        glide.register(String.class, InputStream.class, new LocalStringLoader.Factory());
+        glide.register(ImageMetrics.Url.class, InputStream.class, new MeasuredUrlLoader.Factory());
+    }
+}
@@ -15,6 +15,7 @@
 package com.ancho.tv;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.graphics.Point;
 import android.view.Display;
 import android.view.WindowManager;
@@ -56,6 +57,14 @@ public class Utils {
         Toast.makeText(context, context.getString(resourceId), Toast.LENGTH_LONG).show();
     }
 
+    /**
+     * Returns whether the app holds the given permission.
+     */
+    public static boolean hasPermission(Context context, String permission) {
+        return context.getPackageManager().checkPermission(permission, context.getPackageName())
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
     public static int convertDpToPixel(Context ctx, int dp) {
         float density = ctx.getResources().getDisplayMetrics().density;
         return Math.round((float) dp * density);
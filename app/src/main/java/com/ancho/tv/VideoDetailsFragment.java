@@ -15,6 +15,7 @@
 package com.ancho.tv;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.v17.leanback.app.BackgroundManager;
@@ -43,8 +44,6 @@ import com.bumptech.glide.load.resource.drawable.GlideDrawable;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
 
-import java.util.Collections;
-import java.util.List;
 
 /*
  * LeanbackDetailsFragment extends DetailsFragment, a Wrapper fragment for leanback details screens.
@@ -71,6 +70,17 @@ public class VideoDetailsFragment extends DetailsFragment {
     private Drawable mDefaultBackground;
     private DisplayMetrics mMetrics;
 
+    private final BackgroundCache.Callback mBackgroundCallback = new BackgroundCache.Callback() {
+        @Override
+        public void onBackgroundLoaded(String uri, Bitmap bitmap) {
+            if (bitmap != null) {
+                mBackgroundManager.setBitmap(bitmap);
+            } else {
+                mBackgroundManager.setDrawable(mDefaultBackground);
+            }
+        }
+    };
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         Log.d(TAG, "onCreate DetailsFragment");
@@ -78,8 +88,8 @@ public class VideoDetailsFragment extends DetailsFragment {
 
         prepareBackgroundManager();
 
-        mSelectedMovie = (Movie) getActivity().getIntent()
-                .getSerializableExtra(DetailsActivity.MOVIE);
+        mSelectedMovie = MovieList.findById(getActivity().getIntent()
+                .getLongExtra(DetailsActivity.MOVIE, -1));
         if (mSelectedMovie != null) {
             setupAdapter();
             setupDetailsOverviewRow();
@@ -99,6 +109,12 @@ public class VideoDetailsFragment extends DetailsFragment {
         super.onStop();
     }
 
+    @Override
+    public void onDestroy() {
+        BackgroundCache.getInstance(getActivity()).cancel(mBackgroundCallback);
+        super.onDestroy();
+    }
+
     private void prepareBackgroundManager() {
         mBackgroundManager = BackgroundManager.getInstance(getActivity());
         mBackgroundManager.attach(getActivity().getWindow());
@@ -108,17 +124,8 @@ public class VideoDetailsFragment extends DetailsFragment {
     }
 
     protected void updateBackground(String uri) {
-        Glide.with(getActivity())
-                .load(uri)
-                .centerCrop()
-                .error(mDefaultBackground)
-                .into(new SimpleTarget<GlideDrawable>(mMetrics.widthPixels, mMetrics.heightPixels) {
-                    @Override
-                    public void onResourceReady(GlideDrawable resource,
-                                                GlideAnimation<? super GlideDrawable> glideAnimation) {
-                        mBackgroundManager.setDrawable(resource);
-                    }
-                });
+        BackgroundCache.getInstance(getActivity()).load(uri, mMetrics.widthPixels,
+                mMetrics.heightPixels, mBackgroundCallback);
     }
 
     private void setupAdapter() {
@@ -136,9 +143,10 @@ public class VideoDetailsFragment extends DetailsFragment {
         int height = Utils.convertDpToPixel(getActivity()
                 .getApplicationContext(), DETAIL_THUMB_HEIGHT);
         Glide.with(getActivity())
-                .load(mSelectedMovie.getCardImageUrl())
+                .load(ImageMetrics.url(mSelectedMovie.getCardImageUrl()))
                 .centerCrop()
                 .error(R.drawable.default_background)
+                .listener(ImageMetrics.<GlideDrawable>track(ImageMetrics.SITE_DETAILS))
                 .into(new SimpleTarget<GlideDrawable>(width, height) {
                     @Override
                     public void onResourceReady(GlideDrawable resource,
@@ -176,7 +184,7 @@ public class VideoDetailsFragment extends DetailsFragment {
             public void onActionClicked(Action action) {
                 if (action.getId() == ACTION_WATCH_TRAILER) {
                     Intent intent = new Intent(getActivity(), PlaybackOverlayActivity.class);
-                    intent.putExtra(DetailsActivity.MOVIE, mSelectedMovie);
+                    intent.putExtra(DetailsActivity.MOVIE, mSelectedMovie.getId());
                     startActivity(intent);
                 } else {
                     Toast.makeText(getActivity(), action.toString(), Toast.LENGTH_SHORT).show();
@@ -188,12 +196,16 @@ public class VideoDetailsFragment extends DetailsFragment {
 
     private void setupMovieListRow() {
         String subcategories[] = {getString(R.string.related_movies)};
-        List<Movie> list = MovieList.list;
+        CategoryIndex categories = MovieList.categories;
+        String category = mSelectedMovie.getCategory();
 
-        Collections.shuffle(list);
+        // Titles of the same category following the selected one, wrapping around.
         ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(new CardPresenter());
-        for (int j = 0; j < NUM_COLS; j++) {
-            listRowAdapter.add(list.get(j % 5));
+        int size = categories.size(category);
+        int position = Math.max(0, categories.indexOf(category, mSelectedMovie.getId()));
+        for (int j = 1; j < size && j <= NUM_COLS; j++) {
+            long id = categories.getId(category, (position + j) % size);
+            listRowAdapter.add(MovieList.findById(id));
         }
 
             HeaderItem header = new HeaderItem(0, subcategories[0]);
@@ -213,7 +225,7 @@ public class VideoDetailsFragment extends DetailsFragment {
                 Movie movie = (Movie) item;
                 Log.d(TAG, "Item: " + item.toString());
                 Intent intent = new Intent(getActivity(), DetailsActivity.class);
-                intent.putExtra(getResources().getString(R.string.movie), mSelectedMovie);
+                intent.putExtra(getResources().getString(R.string.movie), movie.getId());
                 intent.putExtra(getResources().getString(R.string.should_start), true);
                 startActivity(intent);
 
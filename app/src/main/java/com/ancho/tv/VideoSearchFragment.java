@@ -0,0 +1,154 @@
+package com.ancho.tv;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v17.leanback.widget.ArrayObjectAdapter;
+import android.support.v17.leanback.widget.HeaderItem;
+import android.support.v17.leanback.widget.ImageCardView;
+import android.support.v17.leanback.widget.ListRow;
+import android.support.v17.leanback.widget.ListRowPresenter;
+import android.support.v17.leanback.widget.ObjectAdapter;
+import android.support.v17.leanback.widget.OnItemViewClickedListener;
+import android.support.v17.leanback.widget.Presenter;
+import android.support.v17.leanback.widget.Row;
+import android.support.v17.leanback.widget.RowPresenter;
+import android.support.v17.leanback.widget.SpeechRecognitionCallback;
+import android.support.v4.app.ActivityOptionsCompat;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Searches the loaded catalog through MovieList.search. Queries run on a background thread as
+ * the user types; results of a query that was superseded in the meantime are dropped. Spoken
+ * queries go through the same typo tolerant index.
+ */
+public class VideoSearchFragment extends android.support.v17.leanback.app.SearchFragment
+        implements android.support.v17.leanback.app.SearchFragment.SearchResultProvider {
+    private static final String TAG = "VideoSearchFragment";
+    private static final int MAX_RESULTS = 50;
+    private static final int REQUEST_SPEECH = 1;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private ArrayObjectAdapter mRowsAdapter;
+    private CardPresenter mCardPresenter;
+    // Incremented for every query, only touched on the main thread.
+    private int mQueryGeneration;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mRowsAdapter = new ArrayObjectAdapter(new ListRowPresenter());
+        mCardPresenter = new CardPresenter();
+        setSearchResultProvider(this);
+        setOnItemViewClickedListener(new ItemViewClickedListener());
+        if (!Utils.hasPermission(getActivity(), Manifest.permission.RECORD_AUDIO)) {
+            // The in-place recognizer needs RECORD_AUDIO; fall back to the system voice search.
+            setSpeechRecognitionCallback(new SpeechRecognitionCallback() {
+                @Override
+                public void recognizeSpeech() {
+                    try {
+                        startActivityForResult(getRecognizerIntent(), REQUEST_SPEECH);
+                    } catch (ActivityNotFoundException e) {
+                        Log.e(TAG, "No activity handles speech recognition", e);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode == REQUEST_SPEECH && resultCode == Activity.RESULT_OK) {
+            setSearchQuery(data, true);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        mExecutor.shutdownNow();
+        mHandler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
+    @Override
+    public ObjectAdapter getResultsAdapter() {
+        return mRowsAdapter;
+    }
+
+    @Override
+    public boolean onQueryTextChange(String newQuery) {
+        search(newQuery);
+        return true;
+    }
+
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        search(query);
+        return true;
+    }
+
+    private void search(final String query) {
+        final int generation = ++mQueryGeneration;
+        if (TextUtils.isEmpty(query)) {
+            mRowsAdapter.clear();
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long[] ids = MovieList.search.search(query, MAX_RESULTS);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mQueryGeneration) {
+                            showResults(ids);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void showResults(long[] ids) {
+        ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(mCardPresenter);
+        for (long id : ids) {
+            // The catalog may have been reloaded since the query ran.
+            Movie movie = MovieList.findById(id);
+            if (movie != null) {
+                listRowAdapter.add(movie);
+            }
+        }
+        mRowsAdapter.clear();
+        if (listRowAdapter.size() > 0) {
+            HeaderItem header = new HeaderItem(getString(R.string.search_results));
+            mRowsAdapter.add(new ListRow(header, listRowAdapter));
+        }
+    }
+
+    private final class ItemViewClickedListener implements OnItemViewClickedListener {
+        @Override
+        public void onItemClicked(Presenter.ViewHolder itemViewHolder, Object item,
+                                  RowPresenter.ViewHolder rowViewHolder, Row row) {
+            if (item instanceof Movie) {
+                Movie movie = (Movie) item;
+                Intent intent = new Intent(getActivity(), DetailsActivity.class);
+                intent.putExtra(DetailsActivity.MOVIE, movie.getId());
+
+                Bundle bundle = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                        getActivity(),
+                        ((ImageCardView) itemViewHolder.view).getMainImageView(),
+                        DetailsActivity.SHARED_ELEMENT_NAME).toBundle();
+                getActivity().startActivity(intent, bundle);
+            }
+        }
+    }
+}
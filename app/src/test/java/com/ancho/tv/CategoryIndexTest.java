@@ -0,0 +1,59 @@
+package com.ancho.tv;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class CategoryIndexTest extends TestCase {
+    private CategoryIndex mIndex;
+
+    @Override
+    protected void setUp() {
+        mIndex = new CategoryIndex();
+    }
+
+    public void testIdsAreKeptSortedWithoutDuplicates() {
+        mIndex.add("drama", 5);
+        mIndex.add("drama", 1);
+        mIndex.add("drama", 9);
+        mIndex.add("drama", 5);
+        mIndex.add("drama", 3);
+        assertEquals(4, mIndex.size("drama"));
+        assertTrue(Arrays.equals(new long[] {1, 3, 5, 9}, mIndex.getIds("drama")));
+        assertEquals(2, mIndex.indexOf("drama", 5));
+        assertTrue(mIndex.indexOf("drama", 4) < 0);
+    }
+
+    public void testRemovingLastIdDropsCategory() {
+        mIndex.add("comedy", 1);
+        mIndex.add("drama", 2);
+        assertTrue(mIndex.remove("comedy", 1));
+        assertFalse(mIndex.remove("comedy", 1));
+        assertEquals(0, mIndex.size("comedy"));
+        assertEquals(1, mIndex.categories().size());
+        assertTrue(mIndex.categories().contains("drama"));
+    }
+
+    public void testNullCategoryIsItsOwnRow() {
+        mIndex.add(null, 7);
+        assertEquals(1, mIndex.size(null));
+        assertEquals(7, mIndex.getId(null, 0));
+        assertEquals(0, mIndex.size("drama"));
+    }
+
+    public void testCategoriesKeepFirstSeenOrder() {
+        mIndex.add("b", 1);
+        mIndex.add("a", 2);
+        mIndex.add("b", 3);
+        assertEquals(Arrays.asList("b", "a").toString(), mIndex.categories().toString());
+    }
+
+    public void testGetIdOutOfRangeThrows() {
+        mIndex.add("drama", 1);
+        try {
+            mIndex.getId("drama", 1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ancho.tv;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MovieCodecTest extends TestCase {
+    private static final int MOVIES = 200;
+
+    private List<Movie> mMovies;
+
+    @Override
+    protected void setUp() {
+        mMovies = new ArrayList<Movie>(MOVIES);
+        for (int i = 0; i < MOVIES; i++) {
+            Movie movie = new Movie();
+            movie.setId(i);
+            movie.setTitle("Title " + i);
+            movie.setDescription("Fusce id nisi turpis. Praesent viverra bibendum semper. "
+                    + "Donec tristique, orci sed semper lacinia, quam erat rhoncus massa " + i);
+            movie.setStudio("Studio " + (i % 10));
+            movie.setCategory("Category " + (i % 6));
+            movie.setVideoUrl("http://s.bemetoy.com/dance/bd/" + i + ".mp4");
+            movie.setCardImageUrl("http://s.bemetoy.com/img/0d/" + i + ".png");
+            movie.setBackgroundImageUrl("drawable://" + i);
+            mMovies.add(movie);
+        }
+    }
+
+    public void testListRoundTrip() throws IOException {
+        List<Movie> decoded = MovieCodec.decode(MovieCodec.encode(mMovies));
+        assertEquals(mMovies.size(), decoded.size());
+        for (int i = 0; i < mMovies.size(); i++) {
+            assertMovie(mMovies.get(i), decoded.get(i));
+        }
+    }
+
+    public void testNullAndNonAsciiFields() throws IOException {
+        Movie movie = new Movie();
+        movie.setId(Long.MAX_VALUE);
+        movie.setTitle("主页设计 — Übersicht");
+        movie.setDescription("");
+        movie.setStudio(null);
+        movie.setCategory(null);
+        Movie decoded = MovieCodec.decode(MovieCodec.encode(Arrays.asList(movie))).get(0);
+        assertMovie(movie, decoded);
+        assertNull(decoded.getStudio());
+        assertEquals("", decoded.getDescription());
+    }
+
+    public void testReadFromBuffer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < 3; i++) {
+            MovieCodec.write(out, mMovies.get(i));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            assertMovie(mMovies.get(i), MovieCodec.read(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    public void testTruncatedBufferThrows() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MovieCodec.write(new DataOutputStream(bytes), mMovies.get(0));
+        byte[] data = bytes.toByteArray();
+        try {
+            MovieCodec.read(ByteBuffer.wrap(data, 0, data.length - 1));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testSmallerThanSerialization() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(new ArrayList<Movie>(mMovies));
+        out.close();
+        assertTrue(MovieCodec.encode(mMovies).length < bytes.size());
+    }
+
+    private static void assertMovie(Movie expected, Movie actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getStudio(), actual.getStudio());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getVideoUrl(), actual.getVideoUrl());
+        assertEquals(expected.getCardImageUrl(), actual.getCardImageUrl());
+        assertEquals(expected.getBackgroundImageUrl(), actual.getBackgroundImageUrl());
+    }
+}
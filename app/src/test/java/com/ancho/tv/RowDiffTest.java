@@ -0,0 +1,175 @@
+package com.ancho.tv;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RowDiffTest extends TestCase {
+    private static final long[] NONE = new long[0];
+
+    public void testIdenticalRowsNeedNoOps() {
+        long[] ids = {1, 2, 3};
+        assertTrue(RowDiff.compute(ids, ids, NONE).isEmpty());
+    }
+
+    public void testFillEmptyRowIsOneInsert() {
+        List<RowDiff.Op> ops = RowDiff.compute(NONE, new long[] {4, 5, 6}, NONE);
+        assertEquals(1, ops.size());
+        assertOp(ops.get(0), RowDiff.Op.INSERT, 0);
+        assertTrue(Arrays.equals(new long[] {4, 5, 6}, ops.get(0).ids));
+    }
+
+    public void testAdjacentRemovalsAreCoalesced() {
+        long[] oldIds = {1, 2, 3, 4, 5, 6};
+        long[] newIds = {1, 5, 6};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(1, ops.size());
+        assertOp(ops.get(0), RowDiff.Op.REMOVE, 1);
+        assertEquals(3, ops.get(0).extra);
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testRemovalsRunBackToFront() {
+        long[] oldIds = {1, 2, 3, 4, 5};
+        long[] newIds = {1, 3, 5};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(2, ops.size());
+        assertOp(ops.get(0), RowDiff.Op.REMOVE, 3);
+        assertOp(ops.get(1), RowDiff.Op.REMOVE, 1);
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testSingleMoveForOneDisplacedTitle() {
+        long[] oldIds = {1, 2, 3, 4, 5};
+        long[] newIds = {2, 3, 4, 5, 1};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(1, ops.size());
+        assertOp(ops.get(0), RowDiff.Op.MOVE, 0);
+        assertEquals(4, ops.get(0).extra);
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testMovesOnlyTitlesOutsideLongestIncreasingRun() {
+        long[] oldIds = {5, 1, 2, 6, 3, 4};
+        long[] newIds = {1, 2, 3, 4, 5, 6};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(2, count(ops, RowDiff.Op.MOVE));
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testReversedRow() {
+        long[] oldIds = {1, 2, 3, 4};
+        long[] newIds = {4, 3, 2, 1};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(3, count(ops, RowDiff.Op.MOVE));
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testMovesWithInsertsAndRemoves() {
+        long[] oldIds = {1, 2, 3, 4, 5, 6, 7};
+        long[] newIds = {8, 6, 1, 9, 10, 3, 2, 7, 11};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(1, count(ops, RowDiff.Op.REMOVE));
+        assertEquals(2, count(ops, RowDiff.Op.MOVE));
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testInsertsAreCoalescedIntoRanges() {
+        long[] oldIds = {1, 5};
+        long[] newIds = {1, 2, 3, 4, 5, 6, 7};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, NONE);
+        assertEquals(2, ops.size());
+        assertOp(ops.get(0), RowDiff.Op.INSERT, 1);
+        assertTrue(Arrays.equals(new long[] {2, 3, 4}, ops.get(0).ids));
+        assertOp(ops.get(1), RowDiff.Op.INSERT, 5);
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testChangesOnlyForKeptTitles() {
+        long[] oldIds = {1, 2, 3};
+        long[] newIds = {3, 1, 4};
+        List<RowDiff.Op> ops = RowDiff.compute(oldIds, newIds, new long[] {1, 2, 4, 99});
+        assertEquals(1, count(ops, RowDiff.Op.CHANGE));
+        RowDiff.Op change = ops.get(ops.size() - 1);
+        assertOp(change, RowDiff.Op.CHANGE, 1);
+        assertEquals(1, change.ids[0]);
+        assertRowAfter(oldIds, newIds, ops);
+    }
+
+    public void testRandomRowsConverge() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            long[] oldIds = randomRow(random);
+            long[] newIds = randomRow(random);
+            assertRowAfter(oldIds, newIds, RowDiff.compute(oldIds, newIds, NONE));
+        }
+    }
+
+    private static long[] randomRow(Random random) {
+        List<Long> ids = new ArrayList<Long>();
+        for (long id = 0; id < 20; id++) {
+            if (random.nextBoolean()) {
+                ids.add(id);
+            }
+        }
+        Collections.shuffle(ids, random);
+        long[] row = new long[ids.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = ids.get(i);
+        }
+        return row;
+    }
+
+    private static int count(List<RowDiff.Op> ops, int type) {
+        int count = 0;
+        for (RowDiff.Op op : ops) {
+            if (op.type == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertOp(RowDiff.Op op, int type, int position) {
+        assertEquals(op.toString(), type, op.type);
+        assertEquals(op.toString(), position, op.position);
+    }
+
+    /**
+     * Applies ops the way RowUpdater applies them to an adapter and checks the outcome.
+     */
+    private static void assertRowAfter(long[] oldIds, long[] newIds, List<RowDiff.Op> ops) {
+        List<Long> row = new ArrayList<Long>();
+        for (long id : oldIds) {
+            row.add(id);
+        }
+        for (RowDiff.Op op : ops) {
+            switch (op.type) {
+                case RowDiff.Op.REMOVE:
+                    row.subList(op.position, op.position + op.extra).clear();
+                    break;
+                case RowDiff.Op.MOVE:
+                    row.add(op.extra, row.remove(op.position));
+                    break;
+                case RowDiff.Op.INSERT:
+                    for (int i = 0; i < op.ids.length; i++) {
+                        row.add(op.position + i, op.ids[i]);
+                    }
+                    break;
+                case RowDiff.Op.CHANGE:
+                    assertEquals(op.ids[0], (long) row.get(op.position));
+                    break;
+            }
+        }
+        long[] result = new long[row.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = row.get(i);
+        }
+        assertEquals(Arrays.toString(newIds) + " from " + Arrays.toString(oldIds),
+                Arrays.toString(newIds), Arrays.toString(result));
+    }
+}
@@ -0,0 +1,133 @@
+package com.ancho.tv;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchIndexTest extends TestCase {
+    private SearchIndex mIndex;
+
+    @Override
+    protected void setUp() {
+        mIndex = new SearchIndex();
+        mIndex.add(movie(1, "Zeitgeist", "Acme", "A documentary about the spirit of the age"));
+        mIndex.add(movie(2, "Gmail Tips", "Google", "Getting more out of your inbox"));
+        mIndex.add(movie(3, "Android Review", "Google", "Reviewing the latest release"));
+        mIndex.add(movie(4, "主页设计", "Studio", null));
+    }
+
+    public void testWordsMatchAsPrefixes() {
+        assertIds(mIndex.search("zeit", 10), 1);
+        assertIds(mIndex.search("Andr rev", 10), 3);
+    }
+
+    public void testEveryWordHasToMatch() {
+        assertIds(mIndex.search("google", 10), 2, 3);
+        assertIds(mIndex.search("google inbox", 10), 2);
+        assertIds(mIndex.search("google qqqq", 10));
+    }
+
+    public void testTitleOutweighsDescription() {
+        mIndex.add(movie(5, "Inbox Zero", "Other", null));
+        assertIds(mIndex.search("inbox", 10), 5, 2);
+    }
+
+    public void testCjkUnigramsAndBigrams() {
+        assertIds(mIndex.search("主", 10), 4);
+        assertIds(mIndex.search("主页", 10), 4);
+        assertIds(mIndex.search("页设", 10), 4);
+        // Characters that are not neighbours do not form an indexed pair.
+        assertIds(mIndex.search("主设", 10));
+        assertIds(mIndex.search("页面", 10));
+    }
+
+    public void testTyposAreCorrected() {
+        assertIds(mIndex.search("Gmial", 10), 2);
+        assertIds(mIndex.search("zietgeist reviw", 10));
+        assertIds(mIndex.search("zietgeist", 10), 1);
+        assertIds(mIndex.search("reviw", 10), 3);
+    }
+
+    public void testShortWordsAreNotCorrected() {
+        assertIds(mIndex.search("gx", 10));
+    }
+
+    public void testWordsThatMatchAreNotCorrected() {
+        mIndex.add(movie(5, "Gmial", "Other", null));
+        assertIds(mIndex.search("gmial", 10), 5);
+    }
+
+    public void testPrefixDistance() {
+        assertEquals(0, SearchIndex.prefixDistance("zeit", "zeitgeist", 1));
+        assertEquals(1, SearchIndex.prefixDistance("gmial", "gmail", 1));
+        assertEquals(1, SearchIndex.prefixDistance("revew", "review", 1));
+        assertEquals(1, SearchIndex.prefixDistance("androd", "android", 2));
+        assertEquals(1, SearchIndex.prefixDistance("anrdoid", "androids", 2));
+        assertEquals(2, SearchIndex.prefixDistance("anrdoyd", "androids", 2));
+        // Above the limit the distance is reported as limit + 1.
+        assertEquals(2, SearchIndex.prefixDistance("abcd", "xycd", 1));
+        assertEquals(3, SearchIndex.prefixDistance("abcdef", "xyzdef", 2));
+    }
+
+    public void testReaddReplacesOldEntry() {
+        mIndex.add(movie(1, "Zodiac", "Acme", null));
+        assertIds(mIndex.search("zeitgeist", 10));
+        assertIds(mIndex.search("zodiac", 10), 1);
+        assertIds(mIndex.search("acme", 10), 1);
+    }
+
+    public void testRemove() {
+        mIndex.remove(2);
+        assertIds(mIndex.search("google", 10), 3);
+        // Added again, it now loses the tie.
+        mIndex.add(movie(2, "Gmail Tips", "Google", null));
+        assertIds(mIndex.search("google", 10), 3, 2);
+    }
+
+    public void testManyReaddsKeepResults() {
+        for (int round = 0; round < 10; round++) {
+            for (long id = 10; id < 110; id++) {
+                mIndex.add(movie(id, "Episode" + id + " round" + round, "Series", null));
+            }
+        }
+        assertEquals(100, mIndex.search("round9", 200).length);
+        assertIds(mIndex.search("episode42", 10), 42);
+        assertIds(mIndex.search("zeit", 10), 1);
+    }
+
+    public void testTypingMatchesFreshIndex() {
+        List<Movie> movies = new ArrayList<Movie>();
+        String[] words = {"star", "stars", "start", "starling", "stamp", "stream", "review"};
+        for (int i = 0; i < 60; i++) {
+            movies.add(movie(i, words[i % words.length] + " " + words[(i / 7) % words.length],
+                    "Studio" + (i % 3), words[(i * 3) % words.length]));
+        }
+        SearchIndex typed = new SearchIndex();
+        typed.add(movies);
+        String[] queries = {"starling review", "stars stream", "stxr", "start studio1"};
+        for (String query : queries) {
+            for (int end = 1; end <= query.length(); end++) {
+                String prefix = query.substring(0, end);
+                SearchIndex fresh = new SearchIndex();
+                fresh.add(movies);
+                assertEquals(prefix, Arrays.toString(fresh.search(prefix, 100)),
+                        Arrays.toString(typed.search(prefix, 100)));
+            }
+        }
+    }
+
+    private static Movie movie(long id, String title, String studio, String description) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setTitle(title);
+        movie.setStudio(studio);
+        movie.setDescription(description);
+        return movie;
+    }
+
+    private static void assertIds(long[] actual, long... expected) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+}